@@ -0,0 +1,142 @@
+package org.lite.inventory.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of requests in flight, with a cap that adapts to observed latency.
+ * <p>
+ * Every {@code window-ms} the fastest request of the last window is compared with a no-load baseline: the
+ * fastest request seen within {@code baseline-horizon-ms}. Queueing delays every request, the fastest one
+ * included, whereas a mix of cheap in-memory reads and slow downstream calls only moves the average; so the
+ * fastest request of a window rising above the baseline is the signal that requests are waiting for capacity.
+ * While it stays within {@code tolerance} times the baseline and the limit is actually being used, the limit
+ * grows by about its square root per window; beyond that, the limit shrinks in proportion. The limit settles
+ * where requests stop queueing, so overload turns into fast rejections instead of growing latency for
+ * everyone. It starts low and grows into the capacity available, like TCP slow start.
+ * <p>
+ * The admission check is one atomic increment and compare; the limit is recomputed by whichever request
+ * completes first after a window ends.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double SMOOTHING = 0.2;
+    // Below this, a slower fastest request is scheduling noise rather than queueing
+    private static final long MIN_QUEUE_DELAY_NANOS = 1_000_000;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger windowPeak = new AtomicInteger();
+    private final LongAdder windowLatencyNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final AtomicLong windowFastestNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong nextUpdateNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    private final long windowNanos;
+    private final long baselineHorizonNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private volatile int limit;
+    // Only touched by the request that won the window update
+    private double estimatedLimit;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long baselineMeasuredAtNanos;
+    private volatile double lastLatencyNanos; // Window average, for monitoring
+
+    public AdaptiveConcurrencyLimiter(@Value("${inventory.admission.concurrency.initial-limit:20}") int initialLimit,
+                                      @Value("${inventory.admission.concurrency.min-limit:5}") int minLimit,
+                                      @Value("${inventory.admission.concurrency.max-limit:200}") int maxLimit,
+                                      @Value("${inventory.admission.concurrency.tolerance:2.0}") double tolerance,
+                                      @Value("${inventory.admission.concurrency.window-ms:100}") long windowMillis,
+                                      @Value("${inventory.admission.concurrency.baseline-horizon-ms:60000}") long baselineHorizonMillis) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = windowMillis * 1_000_000;
+        this.baselineHorizonNanos = baselineHorizonMillis * 1_000_000;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.estimatedLimit = limit;
+        this.nextUpdateNanos = new AtomicLong(System.nanoTime() + windowNanos);
+    }
+
+    /**
+     * @return true if the request may proceed, in which case {@link #release} must be called when it completes
+     */
+    public boolean tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        if (current > windowPeak.get()) {
+            windowPeak.accumulateAndGet(current, Math::max);
+        }
+        return true;
+    }
+
+    public void release(long startNanos) {
+        long now = System.nanoTime();
+        long latency = now - startNanos;
+        inFlight.decrementAndGet();
+        windowLatencyNanos.add(latency);
+        windowSamples.increment();
+        if (latency < windowFastestNanos.get()) {
+            windowFastestNanos.accumulateAndGet(latency, Math::min);
+        }
+        long next = nextUpdateNanos.get();
+        if (now >= next && nextUpdateNanos.compareAndSet(next, now + windowNanos)) {
+            update(now);
+        }
+    }
+
+    private void update(long now) {
+        long samples = windowSamples.sumThenReset();
+        long latency = windowLatencyNanos.sumThenReset();
+        long fastest = windowFastestNanos.getAndSet(Long.MAX_VALUE);
+        int peak = windowPeak.getAndSet(inFlight.get());
+        if (samples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        double average = (double) latency / samples;
+        lastLatencyNanos = average;
+        if (fastest <= baselineNanos || now - baselineMeasuredAtNanos > baselineHorizonNanos) {
+            baselineNanos = fastest;
+            baselineMeasuredAtNanos = now;
+        }
+
+        double acceptable = Math.max(tolerance * baselineNanos, baselineNanos + MIN_QUEUE_DELAY_NANOS);
+        double gradient = Math.max(0.5, Math.min(1.0, acceptable / fastest));
+        // Only grow when the current limit is actually being used
+        double headroom = peak >= estimatedLimit / 2 ? Math.sqrt(estimatedLimit) : 0;
+        double target = estimatedLimit * gradient + headroom;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public double getLatencyMillis() {
+        return lastLatencyNanos / 1_000_000.0;
+    }
+}
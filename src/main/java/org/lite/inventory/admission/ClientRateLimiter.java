@@ -0,0 +1,92 @@
+package org.lite.inventory.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket rate limit per client. Each client may make {@code rate-per-second} requests on average with
+ * bursts of up to {@code burst}. Buckets of idle clients are dropped periodically; once {@code max-clients}
+ * buckets exist, further new clients share a single overflow bucket until idle ones are dropped.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class ClientRateLimiter {
+
+    private static final String OVERFLOW_CLIENT = "*";
+
+    private static final class TokenBucket {
+        private double tokens;
+        private long refilledAtNanos;
+
+        TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAtNanos = now;
+        }
+
+        synchronized boolean tryAcquire(long now, double tokensPerNano, double burst) {
+            tokens = Math.min(burst, tokens + (now - refilledAtNanos) * tokensPerNano);
+            refilledAtNanos = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized long idleNanos(long now) {
+            return now - refilledAtNanos;
+        }
+    }
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    private final double tokensPerNano;
+    private final double burst;
+    private final int maxClients;
+
+    public ClientRateLimiter(@Value("${inventory.admission.rate-limit.rate-per-second:100}") double ratePerSecond,
+                             @Value("${inventory.admission.rate-limit.burst:200}") double burst,
+                             @Value("${inventory.admission.rate-limit.max-clients:10000}") int maxClients) {
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxClients = maxClients;
+    }
+
+    public boolean tryAcquire(String client) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(client);
+        if (bucket == null) {
+            String key = buckets.size() < maxClients ? client : OVERFLOW_CLIENT;
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(burst, now));
+        }
+        if (bucket.tryAcquire(now, tokensPerNano, burst)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    // A bucket idle long enough to have refilled completely behaves exactly like a new one
+    @Scheduled(fixedDelayString = "${inventory.admission.rate-limit.cleanup-interval-ms:60000}")
+    public void dropIdleBuckets() {
+        long now = System.nanoTime();
+        long refillNanos = (long) (burst / tokensPerNano);
+        buckets.values().removeIf(bucket -> bucket.idleNanos(now) > refillNanos);
+    }
+}
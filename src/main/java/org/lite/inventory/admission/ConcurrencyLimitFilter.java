@@ -0,0 +1,66 @@
+package org.lite.inventory.admission;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.lite.inventory.controller.HealthController;
+import org.lite.inventory.model.ErrorResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds requests beyond the {@link AdaptiveConcurrencyLimiter} limit with a 503. Runs before every other
+ * filter, including Spring Security, so a shed request costs no token decoding and no allocation beyond the
+ * container's own: the response body is encoded once at startup.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final byte[] overloadedBody;
+
+    public ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter, ObjectMapper objectMapper) throws JsonProcessingException {
+        this.limiter = limiter;
+        this.overloadedBody = objectMapper.writeValueAsBytes(new ErrorResponse(
+                "The service is overloaded, retry later", "SERVICE_OVERLOADED", null, null));
+    }
+
+    // Health checks must keep answering while the service sheds load
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return HealthController.isHealthCheck(request);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
+        if (!limiter.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setContentLength(overloadedBody.length);
+            response.getOutputStream().write(overloadedBody);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiter.release(start);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.lite.inventory.admission;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.lite.inventory.config.SecurityConfig;
+import org.lite.inventory.controller.HealthController;
+import org.lite.inventory.model.ErrorResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link ClientRateLimiter} with a 429 per client. Runs after authentication, so clients are
+ * keyed by a verified identity: the JWT subject, or the CN of an mTLS client certificate. Unauthenticated
+ * requests are keyed by remote address. Internal peer calls are not limited.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.admission.enabled", havingValue = "true", matchIfMissing = true)
+@Order(Ordered.LOWEST_PRECEDENCE - 200) // After Spring Security, so the caller is authenticated and authorized
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String INTERNAL_SERVICE_AUTHORITY = "ROLE_" + SecurityConfig.INTERNAL_SERVICE_ROLE;
+
+    private final ClientRateLimiter rateLimiter;
+    private final byte[] rateLimitedBody;
+
+    public RateLimitFilter(ClientRateLimiter rateLimiter, ObjectMapper objectMapper) throws JsonProcessingException {
+        this.rateLimiter = rateLimiter;
+        this.rateLimitedBody = objectMapper.writeValueAsBytes(new ErrorResponse(
+                "Too many requests, retry later", "RATE_LIMITED", null, null));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return HealthController.isHealthCheck(request);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (isInternalService(authentication) || rateLimiter.tryAcquire(clientKey(authentication, request))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(rateLimitedBody.length);
+        response.getOutputStream().write(rateLimitedBody);
+    }
+
+    private static boolean isInternalService(Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        for (var authority : authentication.getAuthorities()) {
+            if (INTERNAL_SERVICE_AUTHORITY.equals(authority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String clientKey(Authentication authentication, HttpServletRequest request) {
+        if (authentication instanceof JwtAuthenticationToken jwt) {
+            return "jwt:" + jwt.getToken().getSubject();
+        }
+        if (authentication != null && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "cn:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,49 @@
+package org.lite.inventory.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Remembers tokens that passed signature and claim validation, so a token presented on many requests, such as
+ * the gateway's service token, has its signature verified once instead of on every request. Tokens are keyed
+ * by their complete serialized form, signature included, and a remembered token is only returned until it
+ * expires. Tokens without an expiry are never remembered. Once {@code maxEntries} tokens are remembered, expired
+ * tokens and then the least recently used ones make room for new ones (see {@link LruCache}).
+ */
+final class CachingJwtDecoder implements JwtDecoder {
+
+    // Same allowance as the JwtTimestampValidator applied on a full decode
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+
+    private final JwtDecoder delegate;
+    private final LruCache<String, Jwt> verified;
+
+    CachingJwtDecoder(JwtDecoder delegate, int maxEntries) {
+        this.delegate = delegate;
+        this.verified = new LruCache<>(maxEntries, jwt -> expired(jwt, Instant.now()));
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        Jwt jwt = verified.get(token);
+        if (jwt != null) {
+            if (!expired(jwt, Instant.now())) {
+                return jwt;
+            }
+            verified.remove(token);
+        }
+        jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null) {
+            verified.put(token, jwt);
+        }
+        return jwt;
+    }
+
+    private static boolean expired(Jwt jwt, Instant now) {
+        return !now.isBefore(jwt.getExpiresAt().plus(CLOCK_SKEW));
+    }
+}
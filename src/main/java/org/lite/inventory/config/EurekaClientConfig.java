@@ -1,9 +1,39 @@
 package org.lite.inventory.config;
 
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+
+import java.lang.management.ManagementFactory;
 
 @Configuration
 @EnableDiscoveryClient
+@Slf4j
 public class EurekaClientConfig {
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    public EurekaClientConfig(ObjectProvider<ApplicationInfoManager> applicationInfoManager) {
+        this.applicationInfoManager = applicationInfoManager;
+    }
+
+    // The instance registers as STARTING (eureka.instance.initial-status) so the gateway does not route
+    // to it before the store is loaded. ApplicationReadyEvent fires after all runners have completed,
+    // which is where any startup catalog load happens, so only then is the instance flipped to UP.
+    @EventListener(ApplicationReadyEvent.class)
+    public void markUpWhenReady() {
+        long sinceJvmStart = ManagementFactory.getRuntimeMXBean().getUptime();
+        ApplicationInfoManager manager = applicationInfoManager.getIfAvailable();
+        if (manager == null) {
+            log.info("Eureka client disabled, service ready {} ms after JVM start", sinceJvmStart);
+            return;
+        }
+        manager.setInstanceStatus(InstanceStatus.UP);
+        log.info("Marked {} UP in Eureka {} ms after JVM start", manager.getInfo().getInstanceId(), sinceJvmStart);
+    }
 }
@@ -0,0 +1,83 @@
+package org.lite.inventory.config;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * A concurrent map holding at most {@code maxEntries} entries. Lookups take no lock and only note the millisecond
+ * of use. An insert into a full cache first drops the entries that the given predicate reports as stale, such as
+ * expired tokens, and then, if that did not free enough room, the least recently used eighth of the entries, so
+ * choosing victims costs one sort of the use times per many inserts, and entries in steady use outlive a burst of
+ * new ones.
+ */
+final class LruCache<K, V> {
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastUsedMillis;
+
+        private Entry(V value, long lastUsedMillis) {
+            this.value = value;
+            this.lastUsedMillis = lastUsedMillis;
+        }
+    }
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final Predicate<V> stale;
+
+    LruCache(int maxEntries, Predicate<V> stale) {
+        this.maxEntries = maxEntries;
+        this.stale = stale;
+    }
+
+    /**
+     * @return the value, or null if the key is not cached
+     */
+    V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        // Hot keys are looked up many times per millisecond; one write per millisecond is enough to order them
+        if (entry.lastUsedMillis != now) {
+            entry.lastUsedMillis = now;
+        }
+        return entry.value;
+    }
+
+    void put(K key, V value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    void remove(K key) {
+        entries.remove(key);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private synchronized void evict() {
+        if (entries.size() < maxEntries) {
+            return; // Another insert made room meanwhile
+        }
+        entries.values().removeIf(entry -> stale.test(entry.value));
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        long[] used = entries.values().stream().mapToLong(entry -> entry.lastUsedMillis).toArray();
+        Arrays.sort(used);
+        long cutoff = used[Math.min(used.length - 1, Math.max(0, used.length / 8 - 1))];
+        entries.values().removeIf(entry -> entry.lastUsedMillis <= cutoff);
+    }
+}
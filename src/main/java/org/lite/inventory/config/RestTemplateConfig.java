@@ -2,6 +2,8 @@ package org.lite.inventory.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.lite.inventory.interceptor.ServiceNameInterceptor;
+import org.lite.inventory.interceptor.TraceContextInterceptor;
+import org.lite.inventory.tracing.Tracer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -28,9 +30,10 @@ import java.util.List;
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        // Create connection manager with default SSL settings
+    public RestTemplate restTemplate(Tracer tracer) {
+        // Create connection manager with the JVM's javax.net.ssl settings, so calls to peers present our client certificate
         HttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .useSystemProperties()
                 .setMaxConnPerRoute(20)
                 .setMaxConnTotal(100)
                 .build();
@@ -77,6 +80,9 @@ public class RestTemplateConfig {
         // Add ServiceNameInterceptor
         interceptors.add(new ServiceNameInterceptor());
 
+        // Add trace context propagation
+        interceptors.add(new TraceContextInterceptor(tracer));
+
         // Add JWT token interceptor
         interceptors.add((request, body, execution) -> {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -98,7 +104,8 @@ public class RestTemplateConfig {
                         jwt.getHeaders().get("typ"),
                         jwt.getClaim("iss"));
             } else {
-                log.warn("No JWT token found in SecurityContext");
+                // Expected for service-to-service calls made outside a user request, such as replication
+                log.debug("No JWT token found in SecurityContext");
             }
 
             try {
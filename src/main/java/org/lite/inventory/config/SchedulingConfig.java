@@ -0,0 +1,20 @@
+package org.lite.inventory.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    // Runs every @Scheduled job. Spring's default scheduler has a single thread, on which a long anti-entropy
+    // merge or stats reconciliation would delay replication shipping and everything else behind it.
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${inventory.scheduling.pool-size:6}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("inventory-scheduler-");
+        return scheduler;
+    }
+}
@@ -1,68 +1,141 @@
 package org.lite.inventory.config;
 
-import lombok.AllArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.lite.inventory.filter.JwtRoleValidationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.security.oauth2.resource.OAuth2ResourceServerProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.config.Customizer;
+import org.springframework.security.authorization.AuthorityAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.AuthorizationManagers;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
 import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.firewall.HttpFirewall;
+import org.springframework.security.web.firewall.StrictHttpFirewall;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 
 @Configuration
 @EnableWebSecurity
-@AllArgsConstructor
-@Slf4j
 public class SecurityConfig {
 
-    //It will be called even though you don't use it here, so don't remove it
-    private final JwtRoleValidationFilter jwtRoleValidationFilter;
+    public static final String INTERNAL_SERVICE_ROLE = "INTERNAL_SERVICE";
 
+    // Peer-to-peer replication and shard handoff calls carry the calling instance's client certificate instead of a user token
+    private static final String INTERNAL_PATH_REPLICATION = "/api/inventory/replication/**";
+    private static final String INTERNAL_PATH_SHARD = "/api/inventory/shard/**";
+
+    // Keycloak roles a gateway token must carry, both the realm role and the gateway client role
+    private static final String GATEWAY_CLIENT_ID = "linqra-gateway-client";
+    private static final String REALM_ROLE_PREFIX = "REALM_";
+    private static final String CLIENT_ROLE_PREFIX = "CLIENT_";
+    private static final String REQUIRED_REALM_ROLE = "gateway_admin_realm";
+    private static final String REQUIRED_CLIENT_ROLE = "gateway_admin";
 
     @Bean
-    JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties) {
+    JwtDecoder jwtDecoder(OAuth2ResourceServerProperties properties,
+                          @Value("${inventory.security.jwt-cache-size:10000}") int jwtCacheSize) {
         NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(properties.getJwt().getJwkSetUri()).build();
         decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
                 // Skip issuer validation or validate against multiple issuers
                 token -> OAuth2TokenValidatorResult.success(),
                 new JwtTimestampValidator()
         ));
-        return decoder;
+        return new CachingJwtDecoder(decoder, jwtCacheSize);
     }
 
+    /*
+     * The default firewall's header checks, without its regular expressions: header names and values may contain
+     * any assigned character except control characters. With a regular expression, validating the Authorization
+     * header of every request cost as much as the rest of the firewall.
+     */
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    HttpFirewall httpFirewall() {
+        StrictHttpFirewall firewall = new StrictHttpFirewall();
+        firewall.setAllowedHeaderNames(SecurityConfig::isAssignedAndNotControl);
+        firewall.setAllowedHeaderValues(SecurityConfig::isAssignedAndNotControl);
+        return firewall;
+    }
+
+    private static boolean isAssignedAndNotControl(String text) {
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            int type = Character.getType(codePoint);
+            if (type == Character.UNASSIGNED || type == Character.CONTROL) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
+        }
+        return true;
+    }
+
+    // Certificates of our own peers identify an internal service; any other CN stays unauthenticated
+    @Bean
+    TrustedPeerCertificates trustedPeerCertificates(
+            @Value("${inventory.security.trusted-peer-cns:inventory-service}") List<String> trustedPeerCns) {
+        return new TrustedPeerCertificates(trustedPeerCns, INTERNAL_SERVICE_ROLE);
+    }
+
+    @Bean
+    public SecurityFilterChain filterChain(HttpSecurity http, TrustedPeerCertificates trustedPeers) throws Exception {
+        AuthorizationManager<RequestAuthorizationContext> gatewayAdmin = AuthorizationManagers.allOf(
+                AuthorityAuthorizationManager.hasAuthority(REALM_ROLE_PREFIX + REQUIRED_REALM_ROLE),
+                AuthorityAuthorizationManager.hasAuthority(CLIENT_ROLE_PREFIX + REQUIRED_CLIENT_ROLE));
 
         http
-                .x509(x509 -> x509
-                        .x509PrincipalExtractor((principal -> { //Enable mTLS (client certificate authentication)
-                                    // Extract the CN from the certificate (adjust this logic as needed)
-                                    String dn = principal.getSubjectX500Principal().getName();
-                                    log.info("dn: {}", dn);
-                                    String cn = dn.split(",")[0].replace("CN=", "");
-                                    return cn;  // Return the Common Name (CN) as the principal
-                                })
-                        ))
+                .x509(x509 -> x509 //Enable mTLS (client certificate authentication)
+                        .x509PrincipalExtractor(trustedPeers)
+                        .authenticationUserDetailsService(trustedPeers))
                 .csrf(AbstractHttpConfigurer::disable)
+                // Every request carries its own credentials; a session would only be created and never used again
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                // Role checks happen here, once, against authorities mapped when the token was authenticated
                 .authorizeHttpRequests(authorize -> authorize
-                                .requestMatchers("/r/inventory-service/**")//no matter what you put here, if we have the gateway token from oauth2ResourceServer, we'll be authenticated
-                                .permitAll()  // Public endpoints (if any)
+                                // Plain path patterns; MVC matchers would look up the handler mapping on every request
+                                .requestMatchers(antMatcher(INTERNAL_PATH_REPLICATION), antMatcher(INTERNAL_PATH_SHARD))
+                                .access(AuthorizationManagers.anyOf(
+                                        AuthorityAuthorizationManager.hasRole(INTERNAL_SERVICE_ROLE), gatewayAdmin))
                                 .anyRequest()
-                                .authenticated()
+                                .access(gatewayAdmin)
                 )
                 .oauth2ResourceServer(oauth2-> {  // Enable OAuth2-based authentication (via JWT tokens)
-                    oauth2.jwt(Customizer.withDefaults());
+                    oauth2.bearerTokenResolver(new HeaderBearerTokenResolver());
+                    oauth2.jwt(jwt -> jwt.jwtAuthenticationConverter(token -> new JwtAuthenticationToken(token, gatewayRoles(token))));
                 });
 
         return http.build();
     }
-}
\ No newline at end of file
+
+    // Realm roles and the gateway client's roles, as REALM_<role> and CLIENT_<role> authorities
+    private static Collection<GrantedAuthority> gatewayRoles(Jwt jwt) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        Map<String, Object> realmAccess = jwt.getClaimAsMap("realm_access");
+        if (realmAccess != null && realmAccess.get("roles") instanceof Collection<?> roles) {
+            roles.forEach(role -> authorities.add(new SimpleGrantedAuthority(REALM_ROLE_PREFIX + role)));
+        }
+        Map<String, Object> resourceAccess = jwt.getClaimAsMap("resource_access");
+        if (resourceAccess != null && resourceAccess.get(GATEWAY_CLIENT_ID) instanceof Map<?, ?> client
+                && client.get("roles") instanceof Collection<?> roles) {
+            roles.forEach(role -> authorities.add(new SimpleGrantedAuthority(CLIENT_ROLE_PREFIX + role)));
+        }
+        return authorities;
+    }
+}
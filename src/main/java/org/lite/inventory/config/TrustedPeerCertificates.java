@@ -0,0 +1,100 @@
+package org.lite.inventory.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.userdetails.AuthenticationUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.authentication.preauth.x509.X509PrincipalExtractor;
+
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.ldap.LdapName;
+import javax.naming.ldap.Rdn;
+import javax.security.auth.x500.X500Principal;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Authenticates inventory-service peers by the CN of their mTLS client certificate.
+ * <ul>
+ *     <li>The CN is parsed from a certificate's subject once and remembered, so a peer or the gateway presenting
+ *     the same certificate on every request is looked up rather than parsed again. The most specific CN of the
+ *     subject counts, with escaped characters decoded; a subject without one is not trusted.</li>
+ *     <li>Certificates with a CN that is not trusted yield no principal at all. Certificate authentication is then
+ *     skipped entirely instead of failing with an exception on every request from the gateway.</li>
+ *     <li>The user details of each trusted CN are built once, at startup.</li>
+ * </ul>
+ * A request authenticated by a certificate may also carry a user token, which then replaces the peer as the
+ * authenticated principal; {@link #isTrustedPeer} tells whether such a request came from a peer all the same.
+ */
+@Slf4j
+public final class TrustedPeerCertificates implements X509PrincipalExtractor,
+        AuthenticationUserDetailsService<PreAuthenticatedAuthenticationToken> {
+
+    private static final String CERTIFICATES_ATTRIBUTE = "jakarta.servlet.request.X509Certificate";
+    private static final String UNTRUSTED = "";
+    private static final int MAX_CACHED_CERTIFICATES = 1024;
+
+    private final Map<String, UserDetails> peers;
+    private final LruCache<X509Certificate, String> principals = new LruCache<>(MAX_CACHED_CERTIFICATES, principal -> false);
+
+    public TrustedPeerCertificates(Collection<String> trustedCns, String role) {
+        this.peers = trustedCns.stream().distinct().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                cn -> User.withUsername(cn).password("").roles(role).build()));
+    }
+
+    @Override
+    public Object extractPrincipal(X509Certificate certificate) {
+        String principal = principals.get(certificate);
+        if (principal == null) {
+            String cn = commonName(certificate.getSubjectX500Principal());
+            principal = cn != null && peers.containsKey(cn) ? cn : UNTRUSTED;
+            log.debug("Client certificate CN {} is {}", cn, principal.isEmpty() ? "not a trusted peer" : "a trusted peer");
+            principals.put(certificate, principal);
+        }
+        return principal.isEmpty() ? null : principal;
+    }
+
+    /**
+     * @return whether the request was made with the client certificate of a trusted peer
+     */
+    public boolean isTrustedPeer(HttpServletRequest request) {
+        return request.getAttribute(CERTIFICATES_ATTRIBUTE) instanceof X509Certificate[] certificates
+                && certificates.length > 0 && extractPrincipal(certificates[0]) != null;
+    }
+
+    @Override
+    public UserDetails loadUserDetails(PreAuthenticatedAuthenticationToken token) {
+        UserDetails peer = peers.get(token.getName());
+        if (peer == null) {
+            throw new UsernameNotFoundException("Untrusted client certificate CN: " + token.getName());
+        }
+        return peer;
+    }
+
+    /**
+     * @return the most specific CN of the subject, or null if it has none or cannot be parsed
+     */
+    static String commonName(X500Principal subject) {
+        try {
+            List<Rdn> rdns = new LdapName(subject.getName(X500Principal.RFC2253)).getRdns();
+            // Listed from the most significant RDN, so the most specific CN is the last one
+            for (int i = rdns.size() - 1; i >= 0; i--) {
+                Attribute cn = rdns.get(i).toAttributes().get("CN");
+                if (cn != null) {
+                    return cn.get() instanceof String value ? value : null;
+                }
+            }
+        } catch (NamingException e) {
+            log.debug("Could not parse client certificate subject {}: {}", subject, e.getMessage());
+        }
+        return null;
+    }
+}
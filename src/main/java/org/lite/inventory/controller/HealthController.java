@@ -1,7 +1,14 @@
 package org.lite.inventory.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.admission.AdaptiveConcurrencyLimiter;
+import org.lite.inventory.admission.ClientRateLimiter;
+import org.lite.inventory.history.StockHistory;
+import org.lite.inventory.journal.InventoryJournal;
+import org.lite.inventory.tracing.SpanFileExporter;
 import org.lite.inventory.model.HealthStatus;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -29,11 +36,41 @@ import java.util.Map;
 @Slf4j
 public class HealthController {
 
+    public static final String HEALTH_PATH = "/health";
+
     @Value("${spring.application.name}")
     private String serviceId;
 
     private final Instant startTime = Instant.now();
 
+    private final ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter;
+    private final ObjectProvider<ClientRateLimiter> rateLimiter;
+    private final ObjectProvider<InventoryJournal> journal;
+    private final ObjectProvider<SpanFileExporter> spanExporter;
+    private final ObjectProvider<StockHistory> stockHistory;
+
+    public HealthController(ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter,
+                            ObjectProvider<ClientRateLimiter> rateLimiter,
+                            ObjectProvider<InventoryJournal> journal,
+                            ObjectProvider<SpanFileExporter> spanExporter,
+                            ObjectProvider<StockHistory> stockHistory) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.rateLimiter = rateLimiter;
+        this.journal = journal;
+        this.spanExporter = spanExporter;
+        this.stockHistory = stockHistory;
+    }
+
+    /**
+     * Whether the request is for the health endpoint itself; other paths ending in {@value #HEALTH_PATH} are not.
+     */
+    public static boolean isHealthCheck(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        return uri.length() == contextPath.length() + HEALTH_PATH.length()
+                && uri.startsWith(contextPath) && uri.endsWith(HEALTH_PATH);
+    }
+
     @Operation(
         summary = "Get service health status",
         description = "Retrieves detailed health information including memory usage, CPU load, and uptime"
@@ -70,7 +107,7 @@ public class HealthController {
         )
     })
     @GetMapping(
-        path = "/health",
+        path = HEALTH_PATH,
         produces = MediaType.APPLICATION_JSON_VALUE
     )
     public ResponseEntity<HealthStatus> getHealth() {
@@ -101,6 +138,23 @@ public class HealthController {
             metrics.put("cpu", osBean.getSystemLoadAverage());
             metrics.put("memory", Math.round(memoryUsage * 100.0) / 100.0); // Round to 2 decimal places
             metrics.put("responseTime", measureResponseTime());
+            // Admission control state: load shows up here long before heap pressure does
+            concurrencyLimiter.ifAvailable(limiter -> {
+                metrics.put("concurrencyLimit", (double) limiter.getLimit());
+                metrics.put("inFlight", (double) limiter.getInFlight());
+                metrics.put("requestLatency", Math.round(limiter.getLatencyMillis() * 100.0) / 100.0);
+                metrics.put("rejectedOverloaded", (double) limiter.getRejectedCount());
+            });
+            rateLimiter.ifAvailable(limiter -> metrics.put("rejectedRateLimited", (double) limiter.getRejectedCount()));
+            // A growing lag means the disk is falling behind and writers will soon be held back
+            journal.ifAvailable(j -> {
+                metrics.put("journalLag", (double) j.getLag());
+                metrics.put("journalFailedBatches", (double) j.getFailedBatchCount());
+                metrics.put("journalRejectedWrites", (double) j.getRejectedWriteCount());
+                metrics.put("journalDurabilityTimeouts", (double) j.getDurabilityTimeoutCount());
+            });
+            spanExporter.ifAvailable(exporter -> metrics.put("spansDropped", (double) exporter.getDroppedCount()));
+            stockHistory.ifAvailable(history -> metrics.put("historyBytes", (double) history.getByteSize()));
             status.setMetrics(metrics);
 
             return ResponseEntity
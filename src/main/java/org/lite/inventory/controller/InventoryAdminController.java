@@ -0,0 +1,73 @@
+package org.lite.inventory.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.error.ErrorTemplate;
+import org.lite.inventory.model.BulkLoadReport;
+import org.lite.inventory.model.ErrorResponse;
+import org.lite.inventory.service.InventoryBulkLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@Tag(name = "Inventory Admin", description = "Inventory administration APIs")
+@Slf4j
+@RestController
+@RequestMapping("/api/inventory/admin")
+public class InventoryAdminController {
+
+    private static final ErrorTemplate IMPORT_ERROR = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "BULK_LOAD_ERROR",
+            "Unable to import catalog: ", "/api/inventory/admin/import");
+
+    private final InventoryBulkLoader bulkLoader;
+
+    public InventoryAdminController(InventoryBulkLoader bulkLoader) {
+        this.bulkLoader = bulkLoader;
+    }
+
+    @Operation(summary = "Bulk-import a catalog file",
+              description = "Loads a CSV or NDJSON catalog file from the service's import directory into the store")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Catalog imported",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkLoadReport.class))),
+        @ApiResponse(responseCode = "400",
+                    description = "Catalog file is outside the import directory, could not be read or could not be parsed",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @PostMapping(value = "/import", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importCatalog(
+        @Parameter(description = "Path of the catalog file, relative to the service's import directory", required = true)
+        @RequestParam String path,
+        @Parameter(description = "File format; derived from the file extension when omitted")
+        @RequestParam(required = false) InventoryBulkLoader.Format format,
+        @Parameter(description = "Replace the current inventory instead of merging into it")
+        @RequestParam(defaultValue = "false") boolean replace) {
+        try {
+            BulkLoadReport report = bulkLoader.load(bulkLoader.resolveImportFile(path), format, replace);
+            log.info("Catalog import finished: {}", report);
+            return ResponseEntity.ok(report);
+        } catch (IOException e) {
+            // The exception names the resolved file, which would reveal the server's directory layout
+            log.error("Error reading catalog {}: {}", path, e.toString());
+            return IMPORT_ERROR.toResponse("cannot read " + path, null);
+        } catch (IllegalArgumentException e) {
+            log.error("Error importing catalog {}: {}", path, e.getMessage());
+            return IMPORT_ERROR.toResponse(e.getMessage(), null);
+        }
+    }
+}
@@ -2,20 +2,27 @@ package org.lite.inventory.controller;
 
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.error.ErrorTemplate;
 import org.lite.inventory.model.InventoryItem;
 import org.lite.inventory.model.ProductAvailabilityResponse;
 import org.lite.inventory.model.ErrorResponse;
 import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.model.InventoryStats;
+import org.lite.inventory.service.GatewayClient;
+import org.lite.inventory.service.InventoryAggregates;
+import org.lite.inventory.service.InventoryNameIndex;
+import org.lite.inventory.service.InventoryRangeIndex;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.service.ProductServiceClient;
+import org.lite.inventory.tracing.Span;
+import org.lite.inventory.tracing.Tracer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -26,12 +33,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.Collections;
+import java.util.Optional;
 
 @Tag(name = "Inventory", description = "Inventory management APIs")
 @Slf4j
@@ -39,25 +43,53 @@ import java.util.Collections;
 @RequestMapping("/api/inventory")
 public class InventoryController {
 
-    private final RestTemplate restTemplate;
-    private final Map<Long, InventoryItem> inventoryItems = new HashMap<>();
-    private final AtomicLong idCounter = new AtomicLong(1);
-    
-    @Value("${gateway.base-url:http://localhost:8080}")
-    private String gatewayBaseUrl;
+    private static final ErrorTemplate INVALID_QUERY = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "INVALID_QUERY",
+            "Invalid query: q must not be blank and limit must be positive", "/api/inventory/search");
+    private static final ErrorTemplate INVALID_PRICE_RANGE = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "INVALID_RANGE",
+            "Invalid range: min and max must be numbers, min must not exceed max and limit must be positive",
+            "/api/inventory/price-range");
+    private static final ErrorTemplate INVALID_QUANTITY_RANGE = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "INVALID_RANGE",
+            "Invalid range: min must not exceed max and limit must be positive", "/api/inventory/quantity-range");
+    private static final ErrorTemplate ITEM_NOT_FOUND = ErrorTemplate.of(HttpStatus.NOT_FOUND, "ITEM_NOT_FOUND",
+            "Item not found with id: ", "/api/inventory/");
+    private static final ErrorTemplate UPDATE_ITEM_NOT_FOUND = ErrorTemplate.of(HttpStatus.NOT_FOUND, "ITEM_NOT_FOUND",
+            "Unable to update. Item not found with id: ", "/api/inventory/");
+    private static final ErrorTemplate DELETE_ITEM_NOT_FOUND = ErrorTemplate.of(HttpStatus.NOT_FOUND, "ITEM_NOT_FOUND",
+            "Unable to delete. Item not found with id: ", "/api/inventory/");
+    private static final ErrorTemplate PRODUCT_SERVICE_NO_RESPONSE = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE,
+            "PRODUCT_SERVICE_ERROR", "No response received from Product Service", "/api/inventory/product-availability");
+    private static final ErrorTemplate PRODUCT_SERVICE_ERROR = ErrorTemplate.of(HttpStatus.INTERNAL_SERVER_ERROR,
+            "PRODUCT_SERVICE_ERROR", "Error communicating with Product Service: ", "/api/inventory/product-availability");
+    private static final ErrorTemplate GATEWAY_NO_RESPONSE = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE,
+            "GATEWAY_SERVICE_ERROR", "No response received from API Gateway", "/api/inventory/refresh-routes");
+    private static final ErrorTemplate GATEWAY_ERROR = ErrorTemplate.of(HttpStatus.INTERNAL_SERVER_ERROR,
+            "GATEWAY_SERVICE_ERROR", "Error communicating with API Gateway: ", "/api/inventory/refresh-routes");
+    // HEAD responses carry no body, and the id is already in the request URL; the headers are read-only
+    private static final ResponseEntity<Void> HEAD_ITEM_NOT_FOUND = ResponseEntity.notFound()
+            .header("X-Error-Code", "ITEM_NOT_FOUND")
+            .header("X-Error-Message", "Item not found")
+            .build();
 
-    @Autowired
-    public InventoryController(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
-        // Initialize with some mock data
-        addMockItem("Laptop", 10, 999.99);
-        addMockItem("Smartphone", 20, 699.99);
-        addMockItem("Headphones", 30, 149.99);
-    }
+    private final InventoryStore inventoryStore;
+    private final InventoryRangeIndex rangeIndex;
+    private final InventoryNameIndex nameIndex;
+    private final ProductServiceClient productServiceClient;
+    private final InventoryAggregates aggregates;
+    private final GatewayClient gatewayClient;
+    private final Tracer tracer;
 
-    private void addMockItem(String name, int quantity, double price) {
-        long id = idCounter.getAndIncrement();
-        inventoryItems.put(id, new InventoryItem(id, name, quantity, price));
+    @Autowired
+    public InventoryController(InventoryStore inventoryStore,
+                               InventoryRangeIndex rangeIndex, InventoryNameIndex nameIndex,
+                               ProductServiceClient productServiceClient, InventoryAggregates aggregates,
+                               GatewayClient gatewayClient, Tracer tracer) {
+        this.inventoryStore = inventoryStore;
+        this.rangeIndex = rangeIndex;
+        this.nameIndex = nameIndex;
+        this.productServiceClient = productServiceClient;
+        this.aggregates = aggregates;
+        this.gatewayClient = gatewayClient;
+        this.tracer = tracer;
     }
 
     @Operation(summary = "Get all inventory items")
@@ -66,7 +98,98 @@ public class InventoryController {
                     array = @ArraySchema(schema = @Schema(implementation = InventoryItem.class))))
     @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<List<InventoryItem>> getAllItems() {
-        return ResponseEntity.ok(new ArrayList<>(inventoryItems.values()));
+        return ResponseEntity.ok(inventoryStore.findAll());
+    }
+
+    @Operation(summary = "Search inventory items by name",
+              description = "Autocomplete search: every word in the query must be a prefix of a word in the item name")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Best matching items, best first",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = InventoryItem.class)))),
+        @ApiResponse(responseCode = "400",
+                    description = "Invalid query",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> searchItems(
+        @Parameter(description = "Search text", example = "lap") 
+        @RequestParam String q,
+        @Parameter(description = "Maximum number of items to return") 
+        @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank() || limit < 1) {
+            return INVALID_QUERY.toResponse();
+        }
+        return ResponseEntity.ok(nameIndex.search(q, limit));
+    }
+
+    @Operation(summary = "Find inventory items by price range",
+              description = "Returns items priced between min and max (inclusive) with at least minQuantity in stock, in ascending price order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Matching items",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = InventoryItem.class)))),
+        @ApiResponse(responseCode = "400",
+                    description = "Invalid range",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/price-range", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getItemsByPriceRange(
+        @Parameter(description = "Lowest price, inclusive") 
+        @RequestParam(defaultValue = "0") double min,
+        @Parameter(description = "Highest price, inclusive") 
+        @RequestParam(defaultValue = "Infinity") double max,
+        @Parameter(description = "Minimum quantity in stock, e.g. 1 for in-stock items only") 
+        @RequestParam(defaultValue = "0") int minQuantity,
+        @Parameter(description = "Maximum number of items to return") 
+        @RequestParam(defaultValue = "1000") int limit) {
+        // Every comparison with NaN is false, so it would pass the ordering check
+        if (Double.isNaN(min) || Double.isNaN(max) || min > max || limit < 1) {
+            return INVALID_PRICE_RANGE.toResponse();
+        }
+        return ResponseEntity.ok(rangeIndex.findByPrice(min, max, minQuantity, limit));
+    }
+
+    @Operation(summary = "Find inventory items by quantity range",
+              description = "Returns items whose quantity is between min and max (inclusive), in ascending quantity order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Matching items",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = InventoryItem.class)))),
+        @ApiResponse(responseCode = "400",
+                    description = "Invalid range",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/quantity-range", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getItemsByQuantityRange(
+        @Parameter(description = "Lowest quantity, inclusive") 
+        @RequestParam(defaultValue = "0") int min,
+        @Parameter(description = "Highest quantity, inclusive") 
+        @RequestParam(defaultValue = "2147483647") int max,
+        @Parameter(description = "Maximum number of items to return") 
+        @RequestParam(defaultValue = "1000") int limit) {
+        if (min > max || limit < 1) {
+            return INVALID_QUANTITY_RANGE.toResponse();
+        }
+        return ResponseEntity.ok(rangeIndex.findByQuantity(min, max, limit));
+    }
+
+    @Operation(summary = "Get inventory statistics",
+              description = "Returns item count, total quantity, total stock value (quantity * price), out-of-stock count "
+                      + "and quantity and price histograms. The figures are maintained on every change, so this is "
+                      + "cheap regardless of the inventory size.")
+    @ApiResponse(responseCode = "200", description = "Current statistics",
+            content = @Content(mediaType = "application/json",
+                    schema = @Schema(implementation = InventoryStats.class)))
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<InventoryStats> getStats() {
+        return ResponseEntity.ok(aggregates.snapshot());
     }
 
     @Operation(summary = "Get an inventory item by ID")
@@ -84,18 +207,11 @@ public class InventoryController {
     public ResponseEntity<?> getItemById(
         @Parameter(description = "ID of item to be searched") 
         @PathVariable Long id) {
-        if (inventoryItems.containsKey(id)) {
-            return ResponseEntity.ok(inventoryItems.get(id));
-        } else {
-            ErrorResponse error = ErrorResponse.of(
-                "Item not found with id: " + id,
-                "ITEM_NOT_FOUND",
-                "/api/inventory/" + id
-            );
-            return ResponseEntity
-                .status(HttpStatus.NOT_FOUND)
-                .body(error);
+        Optional<InventoryItem> item = inventoryStore.findById(id);
+        if (item.isPresent()) {
+            return ResponseEntity.ok(item.get());
         }
+        return ITEM_NOT_FOUND.toResponse(String.valueOf(id));
     }
 
     @Operation(summary = "Create a new inventory item")
@@ -104,9 +220,7 @@ public class InventoryController {
     public ResponseEntity<InventoryItem> createItem(
         @Parameter(description = "Item to be created") 
         @RequestBody InventoryItem item) {
-        long id = idCounter.getAndIncrement();
-        InventoryItem newItem = new InventoryItem(id, item.getName(), item.getQuantity(), item.getPrice());
-        inventoryItems.put(id, newItem);
+        InventoryItem newItem = inventoryStore.create(item.getName(), item.getQuantity(), item.getPrice());
         return new ResponseEntity<>(newItem, HttpStatus.CREATED);
     }
 
@@ -128,20 +242,11 @@ public class InventoryController {
         @PathVariable Long id,
         @Parameter(description = "Updated item details", required = true) 
         @RequestBody InventoryItem item) {
-        if (inventoryItems.containsKey(id)) {
-            InventoryItem updatedItem = new InventoryItem(id, item.getName(), item.getQuantity(), item.getPrice());
-            inventoryItems.put(id, updatedItem);
-            return ResponseEntity.ok(updatedItem);
-        } else {
-            ErrorResponse error = ErrorResponse.of(
-                "Unable to update. Item not found with id: " + id,
-                "ITEM_NOT_FOUND",
-                "/api/inventory/" + id
-            );
-            return ResponseEntity
-                .status(HttpStatus.NOT_FOUND)
-                .body(error);
+        Optional<InventoryItem> updatedItem = inventoryStore.replace(id, item.getName(), item.getQuantity(), item.getPrice());
+        if (updatedItem.isPresent()) {
+            return ResponseEntity.ok(updatedItem.get());
         }
+        return UPDATE_ITEM_NOT_FOUND.toResponse(String.valueOf(id));
     }
 
     @Operation(summary = "Delete an inventory item")
@@ -158,19 +263,10 @@ public class InventoryController {
     public ResponseEntity<?> deleteItem(
         @Parameter(description = "ID of item to be deleted") 
         @PathVariable Long id) {
-        if (inventoryItems.containsKey(id)) {
-            inventoryItems.remove(id);
+        if (inventoryStore.delete(id)) {
             return ResponseEntity.noContent().build();
-        } else {
-            ErrorResponse error = ErrorResponse.of(
-                "Unable to delete. Item not found with id: " + id,
-                "ITEM_NOT_FOUND",
-                "/api/inventory/" + id
-            );
-            return ResponseEntity
-                .status(HttpStatus.NOT_FOUND)
-                .body(error);
         }
+        return DELETE_ITEM_NOT_FOUND.toResponse(String.valueOf(id));
     }
 
     @Operation(summary = "Partially update an inventory item")
@@ -194,44 +290,12 @@ public class InventoryController {
         @PathVariable Long id,
         @Parameter(description = "Fields to be updated") 
         @RequestBody InventoryItemPatch patch) {
-        
-        if (!inventoryItems.containsKey(id)) {
-            ErrorResponse error = ErrorResponse.of(
-                "Unable to update. Item not found with id: " + id,
-                "ITEM_NOT_FOUND",
-                "/api/inventory/" + id
-            );
-            return ResponseEntity
-                .status(HttpStatus.NOT_FOUND)
-                .body(error);
-        }
-
-        try {
-            InventoryItem existingItem = inventoryItems.get(id);
-            
-            if (patch.getName() != null) {
-                existingItem.setName(patch.getName());
-            }
-            if (patch.getQuantity() != null) {
-                existingItem.setQuantity(patch.getQuantity());
-            }
-            if (patch.getPrice() != null) {
-                existingItem.setPrice(patch.getPrice());
-            }
-
-            inventoryItems.put(id, existingItem);
-            return ResponseEntity.ok(existingItem);
-            
-        } catch (Exception e) {
-            ErrorResponse error = ErrorResponse.of(
-                "Invalid field value: " + e.getMessage(),
-                "INVALID_FIELD_VALUE",
-                "/api/inventory/" + id
-            );
-            return ResponseEntity
-                .status(HttpStatus.BAD_REQUEST)
-                .body(error);
+        // Invalid field values fail while reading the body and are answered by ApiExceptionHandler
+        Optional<InventoryItem> patchedItem = inventoryStore.patch(id, patch);
+        if (patchedItem.isPresent()) {
+            return ResponseEntity.ok(patchedItem.get());
         }
+        return UPDATE_ITEM_NOT_FOUND.toResponse(String.valueOf(id));
     }
 
     @Operation(summary = "Check if an inventory item exists",
@@ -257,8 +321,9 @@ public class InventoryController {
         @Parameter(description = "ID of item to check", required = true) 
         @PathVariable Long id) {
         
-        if (inventoryItems.containsKey(id)) {
-            InventoryItem item = inventoryItems.get(id);
+        Optional<InventoryItem> found = inventoryStore.findById(id);
+        if (found.isPresent()) {
+            InventoryItem item = found.get();
             return ResponseEntity
                 .ok()
                 .header("X-Item-Found", "true")
@@ -268,11 +333,7 @@ public class InventoryController {
                 .build();
         }
         
-        return ResponseEntity
-            .notFound()
-            .header("X-Error-Code", "ITEM_NOT_FOUND")
-            .header("X-Error-Message", "Item not found with id: " + id)
-            .build();
+        return HEAD_ITEM_NOT_FOUND;
     }
 
     @Operation(summary = "Get available HTTP methods for inventory item",
@@ -296,7 +357,7 @@ public class InventoryController {
     public ResponseEntity<Void> optionsForItem(
         @Parameter(description = "ID of item to check", required = true) 
         @PathVariable Long id) {
-        boolean itemExists = inventoryItems.containsKey(id);
+        boolean itemExists = inventoryStore.exists(id);
         String operations = itemExists ? 
             "get-item,update-item,delete-item,patch-item" : 
             "create-item";
@@ -334,24 +395,12 @@ public class InventoryController {
                   example = "123") 
         @RequestParam(required = false) String productId) {
         
-        String url = gatewayBaseUrl + "/r/product-service/api/product/products";
-        if (productId != null) {
-            url += "/" + productId;
-        }
-        
         try {
-            ProductAvailabilityResponse response = restTemplate.getForObject(url, ProductAvailabilityResponse.class);
+            ProductAvailabilityResponse response = productServiceClient.getAvailability(productId);
             log.info("Retrieved product information from Product Service: {}", response);
             
             if (response == null) {
-                ErrorResponse error = ErrorResponse.of(
-                    "No response received from Product Service",
-                    "PRODUCT_SERVICE_ERROR",
-                    "/api/inventory/product-availability"
-                );
-                return ResponseEntity
-                    .status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .body(error);
+                return PRODUCT_SERVICE_NO_RESPONSE.toResponse();
             }
             
             if (response.getProducts() == null || response.getProducts().isEmpty()) {
@@ -361,30 +410,26 @@ public class InventoryController {
             }
             
             // Enrich product data with inventory availability information
-            response.getProducts().forEach(product -> {
-                // Here we're simulating checking inventory for the product
-                boolean inStock = inventoryItems.values().stream()
-                    .anyMatch(item -> item.getName().equalsIgnoreCase(product.getName()) && item.getQuantity() > 0);
-                product.setInStock(inStock);
-                
-                // Add estimated delivery information based on stock status
-                product.setEstimatedDelivery(inStock ? "1-2 business days" : "3-4 weeks");
-            });
+            try (Span span = tracer.startSpan("enrich-availability")) {
+                span.setAttribute("product.count", response.getProducts().size());
+                response.getProducts().forEach(product -> {
+                    // Here we're simulating checking inventory for the product
+                    boolean inStock = nameIndex.findByName(product.getName()).stream()
+                        .anyMatch(item -> item.getQuantity() > 0);
+                    product.setInStock(inStock);
+
+                    // Add estimated delivery information based on stock status
+                    product.setEstimatedDelivery(inStock ? "1-2 business days" : "3-4 weeks");
+                });
+            }
             
             return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
                 .body(response);
                 
-        } catch (Exception e) {
+        } catch (RestClientException e) {
             log.error("Error retrieving product information: {}", e.getMessage());
-            ErrorResponse error = ErrorResponse.of(
-                "Error communicating with Product Service: " + e.getMessage(),
-                "PRODUCT_SERVICE_ERROR",
-                "/api/inventory/product-availability" + (productId != null ? "/" + productId : "")
-            );
-            return ResponseEntity
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(error);
+            return PRODUCT_SERVICE_ERROR.toResponse(e.getMessage(), productId != null ? "/" + productId : null);
         }
     }
 
@@ -406,52 +451,20 @@ public class InventoryController {
     })
     @GetMapping(value = "/refresh-routes", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> refreshGatewayRoutes() {
-        String url = gatewayBaseUrl + "/api/routes/refresh/routes";
-        
         try {
-            // Create HttpHeaders with required headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            
-            // Create HttpEntity with headers
-            HttpEntity<?> entity = new HttpEntity<>(headers);
+            String body = gatewayClient.refreshRoutes();
             
-            // Use exchange instead of getForEntity to include headers
-            ResponseEntity<String> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    entity,
-                    String.class
-            );
-            
-            log.info("Gateway routes refresh response: {}", response.getBody());
-            
-            if (response.getBody() == null) {
-                ErrorResponse error = ErrorResponse.of(
-                    "No response received from API Gateway",
-                    "GATEWAY_SERVICE_ERROR",
-                    "/api/inventory/refresh-routes"
-                );
-                return ResponseEntity
-                    .status(HttpStatus.SERVICE_UNAVAILABLE)
-                    .body(error);
+            if (body == null) {
+                return GATEWAY_NO_RESPONSE.toResponse();
             }
             
             return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(response.getBody());
+                .body(body);
                 
         } catch (Exception e) {
             log.error("Error refreshing gateway routes: {}", e.getMessage(), e);
-            ErrorResponse error = ErrorResponse.of(
-                "Error communicating with API Gateway: " + e.getMessage(),
-                "GATEWAY_SERVICE_ERROR",
-                "/api/inventory/refresh-routes"
-            );
-            return ResponseEntity
-                .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(error);
+            return GATEWAY_ERROR.toResponse(e.getMessage(), null);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package org.lite.inventory.error;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.journal.JournalUnavailableException;
+import org.lite.inventory.model.ErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.resource.NoResourceFoundException;
+
+/**
+ * Answers request errors raised by Spring MVC itself with the same {@link ErrorResponse} body the controllers
+ * return, rendered from {@link ErrorTemplate}s. Without it these errors go through the servlet container's error
+ * dispatch to {@code /error}, which runs the filter chain a second time for every unknown path a scanner probes.
+ * <p>
+ * Expected outcomes such as a missing item are not exceptions; controllers return their templates directly.
+ */
+@RestControllerAdvice
+@Slf4j
+public class ApiExceptionHandler {
+
+    private static final ErrorTemplate NOT_FOUND = ErrorTemplate.of(
+            HttpStatus.NOT_FOUND, "NOT_FOUND", "No endpoint found", "");
+    private static final ErrorTemplate INVALID_PARAMETER = ErrorTemplate.of(
+            HttpStatus.BAD_REQUEST, "INVALID_PARAMETER", "Invalid value for parameter: ", "");
+    private static final ErrorTemplate MISSING_PARAMETER = ErrorTemplate.of(
+            HttpStatus.BAD_REQUEST, "MISSING_PARAMETER", "Missing required parameter: ", "");
+    private static final ErrorTemplate INVALID_FIELD_VALUE = ErrorTemplate.of(
+            HttpStatus.BAD_REQUEST, "INVALID_FIELD_VALUE", "Invalid field value in request body", "");
+
+    @ExceptionHandler(NoResourceFoundException.class)
+    public ResponseEntity<byte[]> handleNoResource(HttpServletRequest request) {
+        return NOT_FOUND.toResponse(null, path(request));
+    }
+
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<byte[]> handleTypeMismatch(MethodArgumentTypeMismatchException e, HttpServletRequest request) {
+        return INVALID_PARAMETER.toResponse(e.getName(), path(request));
+    }
+
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<byte[]> handleMissingParameter(MissingServletRequestParameterException e,
+                                                         HttpServletRequest request) {
+        return MISSING_PARAMETER.toResponse(e.getParameterName(), path(request));
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<byte[]> handleUnreadableBody(HttpMessageNotReadableException e, HttpServletRequest request) {
+        log.debug("Unreadable request body for {}: {}", request.getRequestURI(), e.getMessage());
+        return INVALID_FIELD_VALUE.toResponse(null, path(request));
+    }
+
+    @ExceptionHandler(JournalUnavailableException.class)
+    public ResponseEntity<byte[]> handleJournalUnavailable(JournalUnavailableException e, HttpServletRequest request) {
+        log.warn("Answering {} with 503: {}", request.getRequestURI(), e.getMessage());
+        ErrorTemplate error = e.getError();
+        return ResponseEntity.status(error.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error.render(null, path(request)));
+    }
+
+    // Paths in error bodies are relative to the context path, like the ones the controllers report
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
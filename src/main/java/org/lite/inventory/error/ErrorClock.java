@@ -0,0 +1,60 @@
+package org.lite.inventory.error;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Clock for error timestamps that formats the date and time of each second once, however many errors share it,
+ * and only appends the fraction per error. Under a burst of 404s most errors reuse the previous encoding instead of
+ * building a {@link LocalDateTime} and formatting it.
+ * <p>
+ * The result is exactly what Jackson writes for {@code LocalDateTime.now()}: ISO local date-time at the precision
+ * of the system clock, with the fraction's trailing zeros dropped and no fraction at all on a whole second.
+ */
+final class ErrorClock {
+
+    private record Tick(long epochSecond, byte[] encoded) {
+    }
+
+    private static volatile Tick tick = new Tick(Long.MIN_VALUE, new byte[0]);
+
+    private ErrorClock() {
+    }
+
+    /**
+     * @return the current local time in ISO format, as UTF-8 bytes
+     */
+    static byte[] now() {
+        return encode(Instant.now());
+    }
+
+    static byte[] encode(Instant instant) {
+        Tick current = tick;
+        if (current.epochSecond() != instant.getEpochSecond()) {
+            String formatted = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(LocalDateTime.ofInstant(
+                    Instant.ofEpochSecond(instant.getEpochSecond()), ZoneId.systemDefault()));
+            current = new Tick(instant.getEpochSecond(), formatted.getBytes(StandardCharsets.US_ASCII));
+            tick = current;
+        }
+        int nanos = instant.getNano();
+        if (nanos == 0) {
+            return current.encoded();
+        }
+        int digits = 9;
+        while (nanos % 10 == 0) {
+            nanos /= 10;
+            digits--;
+        }
+        byte[] encoded = Arrays.copyOf(current.encoded(), current.encoded().length + 1 + digits);
+        encoded[current.encoded().length] = '.';
+        for (int i = encoded.length - 1; i > current.encoded().length; i--) {
+            encoded[i] = (byte) ('0' + nanos % 10);
+            nanos /= 10;
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,112 @@
+package org.lite.inventory.error;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.lite.inventory.model.ErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pre-encoded {@link ErrorResponse} for one error code. Everything but the timestamp and the variable ends of
+ * the message and path is encoded once, so producing an error costs a timestamp from {@link ErrorClock} and one
+ * array copy instead of building an {@code ErrorResponse} and serializing it with Jackson. The JSON is the same as
+ * Jackson's for the equivalent {@code ErrorResponse}, timestamp included.
+ * <p>
+ * Templates are immutable and meant to be kept in constants next to the code that returns them.
+ */
+public final class ErrorTemplate {
+
+    private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+    private static final HttpHeaders JSON_HEADERS;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        JSON_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private final HttpStatus status;
+    private final byte[] messageStart;   // {"message":"<message prefix>
+    private final byte[] timestampStart; // ","code":"<code>","timestamp":"
+    private final byte[] pathStart;      // ","path":"<path prefix>  or  ","path":null
+    private final boolean hasPath;
+
+    private ErrorTemplate(HttpStatus status, String code, String message, String path) {
+        this.status = status;
+        this.messageStart = utf8("{\"message\":\"", quote(message));
+        this.timestampStart = utf8("\",\"code\":\"", quote(code), "\",\"timestamp\":\"");
+        this.hasPath = path != null;
+        this.pathStart = hasPath ? utf8("\",\"path\":\"", quote(path)) : utf8("\",\"path\":null");
+    }
+
+    /**
+     * @param message the message, or its constant start when the rest is passed to {@link #render}
+     * @param path    the path, or its constant start; null for errors not tied to a path
+     */
+    public static ErrorTemplate of(HttpStatus status, String code, String message, String path) {
+        return new ErrorTemplate(status, code, message, path);
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public ResponseEntity<byte[]> toResponse() {
+        return toResponse(null, null);
+    }
+
+    /**
+     * Renders the error as a response whose message and path both end with the argument, typically an item id.
+     */
+    public ResponseEntity<byte[]> toResponse(String argument) {
+        return toResponse(argument, argument);
+    }
+
+    public ResponseEntity<byte[]> toResponse(String messageArgument, String pathArgument) {
+        return new ResponseEntity<>(render(messageArgument, pathArgument), JSON_HEADERS, status);
+    }
+
+    /**
+     * @param messageArgument appended to the message, or null
+     * @param pathArgument    appended to the path, or null; ignored for templates without a path
+     * @return the error as UTF-8 JSON
+     */
+    public byte[] render(String messageArgument, String pathArgument) {
+        byte[] message = messageArgument != null ? ENCODER.quoteAsUTF8(messageArgument) : null;
+        byte[] path = hasPath && pathArgument != null ? ENCODER.quoteAsUTF8(pathArgument) : null;
+        byte[] timestamp = ErrorClock.now();
+        int length = messageStart.length + timestampStart.length + timestamp.length + pathStart.length
+                + (message != null ? message.length : 0) + (path != null ? path.length : 0) + (hasPath ? 2 : 1);
+        byte[] body = new byte[length];
+        int offset = append(body, 0, messageStart);
+        offset = append(body, offset, message);
+        offset = append(body, offset, timestampStart);
+        offset = append(body, offset, timestamp);
+        offset = append(body, offset, pathStart);
+        offset = append(body, offset, path);
+        if (hasPath) {
+            body[offset++] = '"';
+        }
+        body[offset] = '}';
+        return body;
+    }
+
+    private static int append(byte[] target, int offset, byte[] bytes) {
+        if (bytes == null) {
+            return offset;
+        }
+        System.arraycopy(bytes, 0, target, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    private static String quote(String text) {
+        return new String(ENCODER.quoteAsString(text));
+    }
+
+    private static byte[] utf8(String... parts) {
+        return String.join("", parts).getBytes(StandardCharsets.UTF_8);
+    }
+}
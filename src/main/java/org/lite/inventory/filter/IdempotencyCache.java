@@ -0,0 +1,151 @@
+package org.lite.inventory.filter;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Results of requests carrying an {@code Idempotency-Key}, kept for {@code ttl-ms} and at most
+ * {@code max-entries} keys.
+ * <p>
+ * Every entry lives for the same TTL, so insertion order is also expiry order: a FIFO queue of keys serves
+ * both as the expiry schedule and as the eviction order when the cache is full, and eviction only ever looks
+ * at the head of the queue. Claiming a key is one {@link ConcurrentHashMap#putIfAbsent}. A released key leaves
+ * its queue entry behind without counting toward {@code max-entries}; such entries are dropped when they reach
+ * the head, or all at once when they outnumber the live ones.
+ * <p>
+ * The cache is local to the instance. With sharding, requests for an item are forwarded to its owner before
+ * they get here, so retries for the same item meet on the owner wherever they arrive; creates and requests
+ * to a replicated deployment are only deduplicated by the instance that received them.
+ */
+@Component
+public class IdempotencyCache {
+
+    /**
+     * @param headers the response headers other than the content type, replayed as they were sent
+     */
+    public record StoredResponse(int status, String contentType, HttpHeaders headers, byte[] body) {
+    }
+
+    /**
+     * A claimed key. The response is null while the first request with the key is still executing.
+     */
+    public static final class Entry {
+        private final long fingerprint;
+        private final long expiresAtMillis;
+        // Cleared once by whoever releases or evicts the entry, which is the one to uncount it
+        private final AtomicBoolean live = new AtomicBoolean(true);
+        private volatile StoredResponse response;
+
+        private Entry(long fingerprint, long expiresAtMillis) {
+            this.fingerprint = fingerprint;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public StoredResponse getResponse() {
+            return response;
+        }
+    }
+
+    private record Expiry(String key, Entry entry) {
+    }
+
+    private static final int MIN_COMPACTION = 1024;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Expiry> expiries = new ConcurrentLinkedQueue<>();
+    // Live entries in the queue, the ones max-entries applies to
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger releasedSinceCompaction = new AtomicInteger();
+
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    public IdempotencyCache(@Value("${inventory.idempotency.ttl-ms:86400000}") long ttlMillis,
+                            @Value("${inventory.idempotency.max-entries:100000}") int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Claims the key for a new request.
+     *
+     * @return null if the caller now owns the key and must execute the request, otherwise the existing entry
+     */
+    public Entry claim(String key, long fingerprint) {
+        long now = System.currentTimeMillis();
+        evict(now);
+        Entry claimed = new Entry(fingerprint, now + ttlMillis);
+        Entry existing = entries.putIfAbsent(key, claimed);
+        if (existing != null) {
+            if (existing.expiresAtMillis > now) {
+                return existing;
+            }
+            // Expired but not evicted yet
+            if (!entries.replace(key, existing, claimed)) {
+                return claim(key, fingerprint);
+            }
+            if (existing.live.compareAndSet(true, false)) {
+                size.decrementAndGet();
+            }
+        }
+        expiries.add(new Expiry(key, claimed));
+        size.incrementAndGet();
+        return null;
+    }
+
+    public void complete(String key, long fingerprint, StoredResponse response) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.fingerprint == fingerprint && entry.response == null) {
+            entry.response = response;
+        }
+    }
+
+    /**
+     * Releases a claimed key without storing a result, so that a retry executes the request again.
+     */
+    public void release(String key, long fingerprint) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.fingerprint == fingerprint && entry.response == null
+                && entries.remove(key, entry) && entry.live.compareAndSet(true, false)) {
+            size.decrementAndGet();
+            // Released entries deep in the queue would otherwise stay there for the whole TTL
+            if (releasedSinceCompaction.incrementAndGet() > Math.max(size.get(), MIN_COMPACTION)) {
+                releasedSinceCompaction.set(0);
+                expiries.removeIf(expiry -> !expiry.entry().live.get());
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Entries waiting in the expiry queue, live or released
+    int queued() {
+        return expiries.size();
+    }
+
+    // Runs before a claim adds its entry, so a full cache makes room for one
+    private void evict(long now) {
+        Expiry head;
+        while ((head = expiries.peek()) != null
+                && (!head.entry().live.get() || head.entry().expiresAtMillis <= now || size.get() >= maxEntries)) {
+            if (expiries.remove(head) && head.entry().live.compareAndSet(true, false)) {
+                size.decrementAndGet();
+                entries.remove(head.key(), head.entry());
+            }
+        }
+    }
+}
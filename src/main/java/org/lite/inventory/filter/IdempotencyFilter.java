@@ -0,0 +1,364 @@
+package org.lite.inventory.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.error.ErrorTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Makes POST, PUT and PATCH requests safe to retry. A request carrying an {@value #IDEMPOTENCY_KEY_HEADER}
+ * header is executed once; a retry with the same key gets the stored response of the first execution,
+ * marked with {@value #REPLAYED_HEADER}, without the request running again.
+ * <ul>
+ *     <li>Keys are scoped to the authenticated caller, so two clients can never collide on a key.</li>
+ *     <li>Reusing a key for a different request (other method, path or body) is rejected with 422.</li>
+ *     <li>A retry arriving while the first request is still executing is rejected with 409.</li>
+ *     <li>5xx responses and responses over {@code max-body-bytes} are not stored, so a retry executes the
+ *     request again.</li>
+ *     <li>Request bodies over {@code max-request-bytes} are rejected with 413 before they are read.</li>
+ * </ul>
+ * Requests without the header are passed through untouched. A replay restores the stored status, content type,
+ * body and the end-to-end headers of the first response, such as {@code ETag} and {@code Location}.
+ * <p>
+ * Stored responses are kept by each instance on its own (see {@link IdempotencyCache}). With sharding, item
+ * requests are forwarded before they reach this filter, so they are deduplicated by the owning instance.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 50) // After rate limiting and shard forwarding
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> IDEMPOTENT_METHODS = Set.of("POST", "PUT", "PATCH");
+    private static final int MAX_KEY_LENGTH = 255;
+    // Lower case. Set again by the container or on replay rather than stored; the content type is stored apart
+    private static final Set<String> UNSTORED_HEADERS = Set.of("connection", "keep-alive", "transfer-encoding",
+            "content-length", "content-type", "date", "trailer", "upgrade", REPLAYED_HEADER.toLowerCase(Locale.ROOT));
+
+    private static final ErrorTemplate INVALID_KEY = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "INVALID_IDEMPOTENCY_KEY",
+            "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters", "");
+    private static final ErrorTemplate KEY_REUSED = ErrorTemplate.of(HttpStatus.UNPROCESSABLE_ENTITY,
+            "IDEMPOTENCY_KEY_REUSED", "Idempotency-Key was already used for a different request", "");
+    private static final ErrorTemplate KEY_IN_PROGRESS = ErrorTemplate.of(HttpStatus.CONFLICT,
+            "IDEMPOTENCY_KEY_IN_PROGRESS", "A request with this Idempotency-Key is still being processed", "");
+    private static final ErrorTemplate BODY_TOO_LARGE = ErrorTemplate.of(HttpStatus.PAYLOAD_TOO_LARGE,
+            "PAYLOAD_TOO_LARGE", "Request body is too large", "");
+
+    private final IdempotencyCache cache;
+
+    @Value("${inventory.idempotency.max-body-bytes:65536}")
+    private int maxBodyBytes;
+
+    @Value("${inventory.idempotency.max-request-bytes:1048576}")
+    private int maxRequestBytes;
+
+    public IdempotencyFilter(IdempotencyCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !IDEMPOTENT_METHODS.contains(request.getMethod()) || request.getHeader(IDEMPOTENCY_KEY_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER);
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            reject(response, INVALID_KEY, path);
+            return;
+        }
+
+        byte[] body = RequestBodies.read(request, maxRequestBytes);
+        if (body == null) {
+            reject(response, BODY_TOO_LARGE, path);
+            return;
+        }
+        long fingerprint = fingerprint(request.getMethod(), path, body);
+        String key = caller() + '\n' + idempotencyKey;
+
+        IdempotencyCache.Entry existing = cache.claim(key, fingerprint);
+        if (existing != null) {
+            replay(existing, fingerprint, response, path);
+            return;
+        }
+
+        CapturingResponse capturing = new CapturingResponse(response, maxBodyBytes);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(request, body), capturing);
+            capturing.flushWriter();
+            int status = capturing.getStatus();
+            if (status < 500 && !capturing.overflowed()) {
+                cache.complete(key, fingerprint,
+                        new IdempotencyCache.StoredResponse(status, capturing.getContentType(),
+                                storedHeaders(capturing), capturing.captured()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                cache.release(key, fingerprint);
+            }
+        }
+    }
+
+    private void replay(IdempotencyCache.Entry entry, long fingerprint, HttpServletResponse response, String path)
+            throws IOException {
+        if (entry.getFingerprint() != fingerprint) {
+            reject(response, KEY_REUSED, path);
+            return;
+        }
+        IdempotencyCache.StoredResponse stored = entry.getResponse();
+        if (stored == null) {
+            reject(response, KEY_IN_PROGRESS, path);
+            return;
+        }
+        log.debug("Replaying stored response for idempotent request to {}", path);
+        response.setStatus(stored.status());
+        stored.headers().forEach((name, values) -> {
+            response.setHeader(name, values.get(0));
+            values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+        });
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.getOutputStream().write(stored.body());
+    }
+
+    private static void reject(HttpServletResponse response, ErrorTemplate error, String path) throws IOException {
+        response.setStatus(error.getStatus().value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(error.render(null, path));
+    }
+
+    private static HttpHeaders storedHeaders(HttpServletResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : response.getHeaderNames()) {
+            if (!UNSTORED_HEADERS.contains(name.toLowerCase(Locale.ROOT)) && !headers.containsKey(name)) {
+                headers.addAll(name, List.copyOf(response.getHeaders(name)));
+            }
+        }
+        return headers;
+    }
+
+    private static String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    // 64-bit FNV-1a over method, path and body; identifies the request a key was first used for
+    private static long fingerprint(String method, String path, byte[] body) {
+        long hash = 0xCBF29CE484222325L;
+        hash = fnv(hash, method.getBytes(StandardCharsets.UTF_8));
+        hash = fnv(hash, path.getBytes(StandardCharsets.UTF_8));
+        return fnv(hash, body);
+    }
+
+    private static long fnv(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // Writes go straight through to the client and are copied aside, up to a limit, for storing
+    private static final class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream(256);
+        private final int limit;
+        private boolean overflowed;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CapturingResponse(HttpServletResponse response, int limit) {
+            super(response);
+            this.limit = limit;
+        }
+
+        boolean overflowed() {
+            return overflowed;
+        }
+
+        byte[] captured() {
+            return copy.toByteArray();
+        }
+
+        private void capture(byte[] bytes, int offset, int length) {
+            if (overflowed || copy.size() + length > limit) {
+                overflowed = true;
+                return;
+            }
+            copy.write(bytes, offset, length);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    private final byte[] single = new byte[1];
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener writeListener) {
+                        target.setWriteListener(writeListener);
+                    }
+
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        single[0] = (byte) b;
+                        capture(single, 0, 1);
+                    }
+
+                    @Override
+                    public void write(@NonNull byte[] bytes, int offset, int length) throws IOException {
+                        target.write(bytes, offset, length);
+                        capture(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                String encoding = getCharacterEncoding();
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                        encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+            }
+            return writer;
+        }
+
+        // Text written through the writer only reaches the copy once flushed
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+    }
+
+    // The body is read once to fingerprint it and replayed to the rest of the chain
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is all available as soon as a listener is set
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            readListener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.lite.inventory.filter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads request bodies that a filter needs in memory, up to a limit, so that a client cannot make the service
+ * allocate an arbitrarily large buffer.
+ */
+public final class RequestBodies {
+
+    private RequestBodies() {
+    }
+
+    /**
+     * Reads the whole body if it is at most {@code maxBytes} long. A declared {@code Content-Length} over the limit
+     * is refused before anything is read or allocated; a body without one, such as a chunked body, is read until
+     * it passes the limit.
+     *
+     * @return the body, or null if it is longer than {@code maxBytes}
+     */
+    public static byte[] read(HttpServletRequest request, int maxBytes) throws IOException {
+        long length = request.getContentLengthLong();
+        if (length > maxBytes) {
+            return null;
+        }
+        if (length < 0) {
+            // readNBytes grows its buffer as data arrives, so only what the client actually sent is allocated
+            byte[] body = request.getInputStream().readNBytes((int) Math.min(maxBytes + 1L, Integer.MAX_VALUE));
+            return body.length > maxBytes ? null : body;
+        }
+        byte[] body = new byte[(int) length];
+        int read = request.getInputStream().readNBytes(body, 0, body.length);
+        return read == body.length ? body : Arrays.copyOf(body, read);
+    }
+}
@@ -0,0 +1,440 @@
+package org.lite.inventory.history;
+
+import org.lite.inventory.model.HandoffHistory;
+import org.lite.inventory.model.StockHistoryPoint;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The quantity and price history of one item, as a sequence of chunks of variable-length encoded events.
+ * <p>
+ * Each chunk keeps the time and values of its first event in fields and encodes every later event relative to
+ * the one before it:
+ * <pre>
+ *   header   varint   (milliseconds since the previous event) &lt;&lt; 3 | flags
+ *   quantity varint   zigzag quantity delta, if flag QUANTITY is set
+ *   price    varint   zigzag delta in cents, if the price mode is CENTS
+ *            8 bytes  the raw double, if the price mode is RAW
+ * </pre>
+ * so a typical stock movement a few seconds after the previous one takes 3 to 4 bytes. Chunks start small and
+ * double up to {@link #MAX_CHUNK_BYTES}, after which a new chunk is started. Since every chunk starts from
+ * absolute values, retention drops whole chunks from the front without re-encoding anything.
+ * <p>
+ * Not thread-safe on its own: appends are serialized by the store's write lock, and appends, queries and
+ * pruning all synchronize on the instance.
+ */
+final class ItemHistory {
+
+    static final int MIN_CHUNK_BYTES = 16;
+    static final int MAX_CHUNK_BYTES = 1024;
+
+    private static final int QUANTITY = 1;
+    private static final int PRICE_MODE_SHIFT = 1;
+    private static final int PRICE_UNCHANGED = 0;
+    private static final int PRICE_CENTS = 1;
+    private static final int PRICE_RAW = 2;
+    private static final int REMOVED = 3;
+    private static final int FLAG_BITS = 3;
+    private static final int MAX_EVENT_BYTES = 10 + 5 + 10;
+
+    private static final class Chunk {
+        final long startMillis;
+        final int startQuantity;
+        final double startPrice;
+        final boolean startPresent;
+        byte[] data = new byte[MIN_CHUNK_BYTES];
+        int length;
+        int events = 1;
+        long endMillis;
+        int endQuantity;
+        double endPrice;
+        boolean endPresent;
+
+        Chunk(long millis, int quantity, double price, boolean present) {
+            this.startMillis = millis;
+            this.startQuantity = quantity;
+            this.startPrice = price;
+            this.startPresent = present;
+            this.endMillis = millis;
+            this.endQuantity = quantity;
+            this.endPrice = price;
+            this.endPresent = present;
+        }
+    }
+
+    /**
+     * Decodes the events of a chunk in order; {@link #next} leaves the state of the current event in the fields.
+     */
+    private static final class Cursor {
+        private final Chunk chunk;
+        private int position;
+        private int event;
+        long millis;
+        int quantity;
+        double price;
+        boolean present;
+
+        Cursor(Chunk chunk) {
+            this.chunk = chunk;
+        }
+
+        boolean next() {
+            if (event == chunk.events) {
+                return false;
+            }
+            if (event++ == 0) {
+                millis = chunk.startMillis;
+                quantity = chunk.startQuantity;
+                price = chunk.startPrice;
+                present = chunk.startPresent;
+                return true;
+            }
+            long header = readVarint();
+            millis += header >>> FLAG_BITS;
+            int priceMode = (int) (header >>> PRICE_MODE_SHIFT) & 3;
+            present = priceMode != REMOVED;
+            if ((header & QUANTITY) != 0) {
+                quantity += (int) unzigzag(readVarint());
+            }
+            if (priceMode == PRICE_CENTS) {
+                price = (Math.round(price * 100) + unzigzag(readVarint())) / 100.0;
+            } else if (priceMode == PRICE_RAW) {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = bits << 8 | (chunk.data[position++] & 0xFF);
+                }
+                price = Double.longBitsToDouble(bits);
+            }
+            return true;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = chunk.data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    // Values before the first retained event, once older chunks have been dropped; absent for new items
+    private boolean hasInitial;
+    private int initialQuantity;
+    private double initialPrice;
+    private boolean initialPresent;
+
+    /**
+     * @param existed whether the item existed before its first recorded change, with the given values
+     */
+    ItemHistory(boolean existed, int previousQuantity, double previousPrice) {
+        this.hasInitial = existed;
+        this.initialQuantity = previousQuantity;
+        this.initialPrice = previousPrice;
+        this.initialPresent = existed;
+    }
+
+    /**
+     * Records the state of the item after a change. Times never go backwards: an event timestamped before the
+     * previous one, after a wall clock step, is recorded at the previous event's time.
+     *
+     * @return the number of bytes the event added, counting a new chunk as its initial array size
+     */
+    synchronized int append(long millis, int quantity, double price, boolean present) {
+        Chunk last = chunks.peekLast();
+        if (last == null) {
+            chunks.add(new Chunk(millis, quantity, price, present));
+            return MIN_CHUNK_BYTES;
+        }
+        millis = Math.max(millis, last.endMillis);
+        int added = 0;
+        if (last.length + MAX_EVENT_BYTES > last.data.length) {
+            if (last.data.length == MAX_CHUNK_BYTES) {
+                chunks.add(new Chunk(millis, quantity, price, present));
+                return MIN_CHUNK_BYTES;
+            }
+            int grown = Math.min(last.data.length * 2, MAX_CHUNK_BYTES);
+            added = grown - last.data.length;
+            last.data = Arrays.copyOf(last.data, grown);
+        }
+        encode(last, millis, quantity, price, present);
+        return added;
+    }
+
+    private static void encode(Chunk chunk, long millis, int quantity, double price, boolean present) {
+        int flags = quantity != chunk.endQuantity ? QUANTITY : 0;
+        int priceMode;
+        long cents = Math.round(price * 100);
+        long previousCents = Math.round(chunk.endPrice * 100);
+        if (!present) {
+            priceMode = REMOVED;
+        } else if (Double.compare(price, chunk.endPrice) == 0) {
+            priceMode = PRICE_UNCHANGED;
+        } else if (cents / 100.0 == price && previousCents / 100.0 == chunk.endPrice) {
+            priceMode = PRICE_CENTS;
+        } else {
+            priceMode = PRICE_RAW;
+        }
+        if (!present) {
+            // A removal keeps the last values, so that a query sees what was there until then
+            flags = 0;
+            quantity = chunk.endQuantity;
+            price = chunk.endPrice;
+        }
+        writeVarint(chunk, (millis - chunk.endMillis) << FLAG_BITS | (long) priceMode << PRICE_MODE_SHIFT | flags);
+        if (flags != 0) {
+            writeVarint(chunk, zigzag((long) quantity - chunk.endQuantity));
+        }
+        if (priceMode == PRICE_CENTS) {
+            writeVarint(chunk, zigzag(cents - previousCents));
+        } else if (priceMode == PRICE_RAW) {
+            long bits = Double.doubleToRawLongBits(price);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                chunk.data[chunk.length++] = (byte) (bits >>> shift);
+            }
+        }
+        chunk.events++;
+        chunk.endMillis = millis;
+        chunk.endQuantity = quantity;
+        chunk.endPrice = price;
+        chunk.endPresent = present;
+    }
+
+    /**
+     * Drops chunks whose last event is older than the cutoff, keeping their final values as the initial state.
+     *
+     * @return the number of array bytes released
+     */
+    synchronized int prune(long cutoffMillis) {
+        int released = 0;
+        // The newest chunk is kept so that the current state stays known
+        while (chunks.size() > 1 && chunks.peekFirst().endMillis < cutoffMillis) {
+            Chunk dropped = chunks.pollFirst();
+            hasInitial = true;
+            initialQuantity = dropped.endQuantity;
+            initialPrice = dropped.endPrice;
+            initialPresent = dropped.endPresent;
+            released += dropped.data.length;
+        }
+        return released;
+    }
+
+    /**
+     * @return whether the item was removed and its history has expired, so the whole history can be dropped
+     */
+    synchronized boolean isExpired(long cutoffMillis) {
+        Chunk last = chunks.peekLast();
+        return last != null && !last.endPresent && last.endMillis < cutoffMillis;
+    }
+
+    synchronized boolean endsWith(int quantity, double price, boolean present) {
+        Chunk last = chunks.peekLast();
+        if (last == null) {
+            return hasInitial && initialPresent == present && initialQuantity == quantity
+                    && Double.compare(initialPrice, price) == 0;
+        }
+        return last.endPresent == present && (!present
+                || last.endQuantity == quantity && Double.compare(last.endPrice, price) == 0);
+    }
+
+    synchronized boolean isPresent() {
+        Chunk last = chunks.peekLast();
+        return last != null ? last.endPresent : hasInitial && initialPresent;
+    }
+
+    synchronized int byteSize() {
+        int bytes = 0;
+        for (Chunk chunk : chunks) {
+            bytes += chunk.data.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the retained events, with the state before the first of them, so they can be handed to another
+     * instance.
+     */
+    synchronized HandoffHistory export() {
+        int count = 0;
+        for (Chunk chunk : chunks) {
+            count += chunk.events;
+        }
+        HandoffHistory exported = new HandoffHistory(hasInitial && initialPresent, initialQuantity, initialPrice,
+                new long[count], new int[count], new double[count], new boolean[count]);
+        int event = 0;
+        for (Chunk chunk : chunks) {
+            Cursor cursor = new Cursor(chunk);
+            while (cursor.next()) {
+                exported.getTimes()[event] = cursor.millis;
+                exported.getQuantities()[event] = cursor.quantity;
+                exported.getPrices()[event] = cursor.price;
+                exported.getPresent()[event] = cursor.present;
+                event++;
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * Interleaves two exported histories of the same item by time, as kept by its previous and its new owner.
+     * The merged history starts from the state before the earlier first event, and events that leave the state
+     * unchanged, such as the same change exported twice, are left out.
+     */
+    static ItemHistory merge(HandoffHistory first, HandoffHistory second) {
+        if (second.getTimes().length > 0
+                && (first.getTimes().length == 0 || second.getTimes()[0] < first.getTimes()[0])) {
+            HandoffHistory earlier = second;
+            second = first;
+            first = earlier;
+        }
+        ItemHistory merged = new ItemHistory(first.isExisted(), first.getInitialQuantity(), first.getInitialPrice());
+        boolean present = first.isExisted();
+        int quantity = first.getInitialQuantity();
+        double price = first.getInitialPrice();
+        int i = 0;
+        int j = 0;
+        while (i < first.getTimes().length || j < second.getTimes().length) {
+            HandoffHistory from;
+            int event;
+            if (j == second.getTimes().length
+                    || i < first.getTimes().length && first.getTimes()[i] <= second.getTimes()[j]) {
+                from = first;
+                event = i++;
+            } else {
+                from = second;
+                event = j++;
+            }
+            boolean eventPresent = from.getPresent()[event];
+            int eventQuantity = from.getQuantities()[event];
+            double eventPrice = from.getPrices()[event];
+            if (eventPresent == present && (!present
+                    || eventQuantity == quantity && Double.compare(eventPrice, price) == 0)) {
+                continue;
+            }
+            merged.append(from.getTimes()[event], eventQuantity, eventPrice, eventPresent);
+            present = eventPresent;
+            quantity = eventQuantity;
+            price = eventPrice;
+        }
+        return merged;
+    }
+
+    /**
+     * Summarizes the history within [from, to) in buckets of {@code stepMillis}. Each point describes one bucket
+     * in which the item existed: its quantity and price at the end of the bucket, the quantity range over the
+     * bucket and the number of changes within it. Buckets before the item existed or after it was removed are
+     * left out.
+     */
+    synchronized List<StockHistoryPoint> downsample(long from, long to, long stepMillis) {
+        List<StockHistoryPoint> points = new ArrayList<>();
+        // The state after the events seen so far
+        boolean present = hasInitial && initialPresent;
+        int quantity = initialQuantity;
+        double price = initialPrice;
+
+        Bucket bucket = null;
+        long bucketStart = from;
+        scan:
+        for (Chunk chunk : chunks) {
+            if (chunk.endMillis < from) {
+                present = chunk.endPresent;
+                quantity = chunk.endQuantity;
+                price = chunk.endPrice;
+                continue;
+            }
+            Cursor cursor = new Cursor(chunk);
+            while (cursor.next()) {
+                if (cursor.millis >= to) {
+                    break scan;
+                }
+                if (cursor.millis >= from) {
+                    if (bucket == null) {
+                        bucket = new Bucket(present, quantity);
+                    }
+                    while (cursor.millis >= bucketStart + stepMillis) {
+                        bucket.emit(points, bucketStart, present, quantity, price);
+                        bucketStart += stepMillis;
+                        bucket = new Bucket(present, quantity);
+                    }
+                }
+                present = cursor.present;
+                quantity = cursor.quantity;
+                price = cursor.price;
+                if (bucket != null) {
+                    bucket.record(present, quantity);
+                }
+            }
+        }
+        if (bucket == null) {
+            bucket = new Bucket(present, quantity);
+        }
+        while (bucketStart < to) {
+            bucket.emit(points, bucketStart, present, quantity, price);
+            bucketStart += stepMillis;
+            bucket = new Bucket(present, quantity);
+        }
+        return points;
+    }
+
+    private static final class Bucket {
+        private boolean seen;
+        private int min;
+        private int max;
+        private int changes;
+
+        Bucket(boolean present, int quantity) {
+            if (present) {
+                seen = true;
+                min = quantity;
+                max = quantity;
+            }
+        }
+
+        void record(boolean present, int quantity) {
+            changes++;
+            if (!present) {
+                return;
+            }
+            if (!seen) {
+                seen = true;
+                min = quantity;
+                max = quantity;
+            } else {
+                min = Math.min(min, quantity);
+                max = Math.max(max, quantity);
+            }
+        }
+
+        void emit(List<StockHistoryPoint> points, long bucketStart, boolean present, int quantity, double price) {
+            if (!seen) {
+                return;
+            }
+            points.add(new StockHistoryPoint(Instant.ofEpochMilli(bucketStart), present ? quantity : null,
+                    present ? price : null, min, max, changes));
+        }
+    }
+
+    private static void writeVarint(Chunk chunk, long value) {
+        while ((value & ~0x7FL) != 0) {
+            chunk.data[chunk.length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        chunk.data[chunk.length++] = (byte) value;
+    }
+
+    private static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    private static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+}
@@ -0,0 +1,188 @@
+package org.lite.inventory.history;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.HandoffHistory;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.StockHistoryResponse;
+import org.lite.inventory.service.InventoryChangeListener;
+import org.lite.inventory.service.InventoryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the quantity and price history of every item that changes, for demand forecasting. Each change applied
+ * to the {@link InventoryStore} is appended to the item's {@link ItemHistory}, where it costs a few bytes.
+ * Items that never change cost nothing: their history is their current state.
+ * <p>
+ * History older than {@code inventory.history.retention} is dropped by a periodic sweep, a chunk at a time, so
+ * slightly more than the retention period may remain. The history of a removed item disappears entirely once
+ * its removal is older than the retention period.
+ * <p>
+ * In a sharded deployment an item's history moves with the item: {@link #export} attaches it to a handoff,
+ * {@link #merge} adds it to the receiver's and {@link #drop} releases it on the sender.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.history.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public final class StockHistory implements InventoryChangeListener {
+
+    private final InventoryStore store;
+    private final Duration retention;
+    private final ConcurrentHashMap<Long, ItemHistory> histories = new ConcurrentHashMap<>();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public StockHistory(InventoryStore store,
+                        @Value("${inventory.history.retention:7d}") Duration retention) {
+        this.store = store;
+        this.retention = retention;
+        store.addListener(this);
+    }
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (previous != null && previous.getQuantity() == current.getQuantity()
+                && Double.compare(previous.getPrice(), current.getPrice()) == 0) {
+            return; // Only the name changed
+        }
+        record(current.getId(), previous, current.getQuantity(), current.getPrice(), true);
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        record(removed.getId(), removed, removed.getQuantity(), removed.getPrice(), false);
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        if (histories.isEmpty()) {
+            return; // Registration, or a bulk load before anything changed: there is no history to extend
+        }
+        // Items without history start theirs at their next change, since their values before the load are unknown
+        Set<Long> loaded = new HashSet<>();
+        for (InventoryItem item : items) {
+            loaded.add(item.getId());
+            ItemHistory history = histories.get(item.getId());
+            if (history != null && !history.endsWith(item.getQuantity(), item.getPrice(), true)) {
+                record(item.getId(), null, item.getQuantity(), item.getPrice(), true);
+            }
+        }
+        histories.forEach((id, history) -> {
+            if (!loaded.contains(id) && history.isPresent()) {
+                record(id, null, 0, 0, false);
+            }
+        });
+    }
+
+    // Appends run inside compute, so the sweep can never drop a history while a change is being added to it
+    private void record(long id, InventoryItem previous, int quantity, double price, boolean present) {
+        long now = System.currentTimeMillis();
+        histories.compute(id, (key, history) -> {
+            if (history == null) {
+                history = previous != null
+                        ? new ItemHistory(true, previous.getQuantity(), previous.getPrice())
+                        : new ItemHistory(false, 0, 0);
+            }
+            bytes.addAndGet(history.append(now, quantity, price, present));
+            return history;
+        });
+        events.incrementAndGet();
+    }
+
+    /**
+     * Downsamples an item's history over [from, to) into buckets of {@code ceil((to - from) / points)}.
+     *
+     * @return the history, or empty if the item has neither history nor a current state
+     */
+    public Optional<StockHistoryResponse> query(long id, Instant from, Instant to, int points) {
+        long fromMillis = from.toEpochMilli();
+        long toMillis = to.toEpochMilli();
+        long stepMillis = Math.max(1, (toMillis - fromMillis + points - 1) / points);
+        ItemHistory history = histories.get(id);
+        if (history == null) {
+            // Never changed: a constant series at the current values
+            Optional<InventoryItem> item = store.findById(id);
+            if (item.isEmpty()) {
+                return Optional.empty();
+            }
+            history = new ItemHistory(true, item.get().getQuantity(), item.get().getPrice());
+        }
+        return Optional.of(new StockHistoryResponse(id, from, to, stepMillis,
+                history.downsample(fromMillis, toMillis, stepMillis)));
+    }
+
+    /**
+     * @return the item's retained history, or null if it has none
+     */
+    public HandoffHistory export(long id) {
+        ItemHistory history = histories.get(id);
+        return history != null ? history.export() : null;
+    }
+
+    /**
+     * Merges the history of an item handed off by its previous owner into the local one, which holds the changes
+     * made here, including storing the handed-off copy.
+     */
+    public void merge(long id, HandoffHistory handedOff) {
+        histories.compute(id, (key, history) -> {
+            ItemHistory merged = ItemHistory.merge(
+                    history != null ? history.export() : new HandoffHistory(false, 0, 0, new long[0], new int[0],
+                            new double[0], new boolean[0]), handedOff);
+            bytes.addAndGet(merged.byteSize() - (history != null ? history.byteSize() : 0));
+            return merged;
+        });
+    }
+
+    /**
+     * Releases the history of an item handed off to another instance.
+     */
+    public void drop(long id) {
+        ItemHistory dropped = histories.remove(id);
+        if (dropped != null) {
+            bytes.addAndGet(-dropped.byteSize());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.history.prune-interval-ms:60000}")
+    public void prune() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        long before = bytes.get();
+        histories.forEach((id, history) -> bytes.addAndGet(-history.prune(cutoff)));
+        histories.keySet().forEach(id -> histories.computeIfPresent(id, (key, history) -> {
+            if (!history.isExpired(cutoff)) {
+                return history;
+            }
+            bytes.addAndGet(-history.byteSize());
+            return null;
+        }));
+        if (before != bytes.get()) {
+            log.debug("Pruned stock history older than {}: {} bytes released", retention, before - bytes.get());
+        }
+    }
+
+    public long getEventCount() {
+        return events.get();
+    }
+
+    /**
+     * @return the size of the encoded history, excluding per-item and per-chunk object overhead
+     */
+    public long getByteSize() {
+        return bytes.get();
+    }
+
+    public int getItemCount() {
+        return histories.size();
+    }
+}
@@ -0,0 +1,88 @@
+package org.lite.inventory.history;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.lite.inventory.error.ErrorTemplate;
+import org.lite.inventory.model.ErrorResponse;
+import org.lite.inventory.model.StockHistoryResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@Tag(name = "Inventory History", description = "Quantity and price history of inventory items")
+@RestController
+@RequestMapping("/api/inventory")
+@ConditionalOnProperty(name = "inventory.history.enabled", havingValue = "true", matchIfMissing = true)
+public class StockHistoryController {
+
+    private static final ErrorTemplate ITEM_NOT_FOUND = ErrorTemplate.of(HttpStatus.NOT_FOUND, "ITEM_NOT_FOUND",
+            "Item not found with id: ", "/api/inventory/");
+    private static final ErrorTemplate INVALID_RANGE = ErrorTemplate.of(HttpStatus.BAD_REQUEST, "INVALID_RANGE",
+            "Invalid range: from must be before to and points must be between 1 and ", "/api/inventory/");
+
+    private final StockHistory history;
+    private final int maxPoints;
+
+    public StockHistoryController(StockHistory history,
+                                  @Value("${inventory.history.max-points:1000}") int maxPoints) {
+        this.history = history;
+        this.maxPoints = maxPoints;
+    }
+
+    @Operation(summary = "Get the stock history of an item",
+              description = "Returns the item's quantity and price over a time range, downsampled to at most the "
+                      + "given number of points. Each point covers an equal share of the range and gives the values "
+                      + "at its end, the quantity range within it and the number of changes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "History of the item",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = StockHistoryResponse.class))),
+        @ApiResponse(responseCode = "400",
+                    description = "Invalid range",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "404",
+                    description = "Item not found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ErrorResponse.class)))
+    })
+    @GetMapping(value = "/{id}/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getHistory(
+        @Parameter(description = "ID of the item")
+        @PathVariable long id,
+        @Parameter(description = "Start of the range, inclusive; defaults to 24 hours before the end", example = "2025-03-01T00:00:00Z")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+        @Parameter(description = "End of the range, exclusive; defaults to now", example = "2025-03-02T00:00:00Z")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+        @Parameter(description = "Maximum number of points")
+        @RequestParam(defaultValue = "100") int points) {
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofHours(24));
+        if (!start.isBefore(end) || points < 1 || points > maxPoints) {
+            return INVALID_RANGE.toResponse(String.valueOf(maxPoints), id + "/history");
+        }
+        Optional<StockHistoryResponse> response = history.query(id, start, end, points);
+        if (response.isPresent()) {
+            return ResponseEntity.ok(response.get());
+        }
+        return ITEM_NOT_FOUND.toResponse(String.valueOf(id));
+    }
+}
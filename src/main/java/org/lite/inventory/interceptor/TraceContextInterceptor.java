@@ -0,0 +1,53 @@
+package org.lite.inventory.interceptor;
+
+import org.lite.inventory.tracing.Span;
+import org.lite.inventory.tracing.TraceContext;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Records a client span per outgoing call and passes the trace on in the {@code traceparent} header, so the
+ * called service continues the same trace. The header is also sent for unsampled traces, to carry the sampling
+ * decision.
+ */
+public class TraceContextInterceptor implements ClientHttpRequestInterceptor {
+
+    private final Tracer tracer;
+
+    public TraceContextInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public @NonNull ClientHttpResponse intercept(HttpRequest request, @NonNull byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!tracer.isEnabled()) {
+            return execution.execute(request, body);
+        }
+        try (Span span = tracer.startSpan("HTTP " + request.getMethod(), Span.Kind.CLIENT)) {
+            TraceContext context = tracer.currentContext();
+            if (context != null) {
+                request.getHeaders().set(TraceContext.TRACEPARENT_HEADER, context.toTraceparent());
+            }
+            span.setAttribute("server.address", request.getURI().getHost())
+                    .setAttribute("url.path", request.getURI().getPath());
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                int status = response.getStatusCode().value();
+                span.setAttribute("http.response.status_code", status);
+                if (status >= 500) {
+                    span.setError("HTTP " + status);
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                span.recordError(e);
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package org.lite.inventory.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.error.ErrorTemplate;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.service.InventoryChangeListener;
+import org.lite.inventory.service.InventoryStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Write-behind persistence for the {@link InventoryStore}. Mutations are applied in memory as before and also
+ * published to a bounded {@link JournalRingBuffer}; a single writer thread drains the ring in batches,
+ * appends each batch to a {@link JournalFile} with one write and one fsync, and hands the slots back. The
+ * durability level decides when a mutating request is answered:
+ * <ul>
+ *     <li>{@code MEMORY}: as soon as the change is in memory. A crash loses changes not yet written, at most
+ *     one ring's worth.</li>
+ *     <li>{@code FSYNC}: once the batch holding the change has been fsynced. Concurrent requests share a
+ *     batch, so the cost of an fsync is spread over all of them. A change not on disk within
+ *     {@code fsync-timeout-ms} stays applied, but the request fails with 503 {@code JOURNAL_NOT_DURABLE}.</li>
+ * </ul>
+ * In both modes writers are held back before they take the store's write lock while the ring is more than half
+ * full, and refused with 503 {@code JOURNAL_BACKLOGGED} if the disk does not catch up within
+ * {@code full-timeout-ms}. The free half absorbs writers already past that check and store calls that change
+ * many items at once; only a single call changing more items than that can still wait under the lock. On startup the journal is replayed
+ * over the startup catalog before the instance is marked UP; a new journal starts with a snapshot of the
+ * store, so from then on the journal alone defines the contents. Once the file exceeds {@code compact-bytes}
+ * it is rewritten as a snapshot of the store, followed by the changes that came in meanwhile.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.journal.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // After the startup catalog, before the replication sync
+@Slf4j
+public final class InventoryJournal implements InventoryChangeListener, ApplicationRunner {
+
+    public enum Durability {
+        MEMORY,
+        FSYNC
+    }
+
+    private static final String FILE_NAME = "inventory.journal";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final ErrorTemplate BACKLOGGED = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE,
+            "JOURNAL_BACKLOGGED", "Too many changes are waiting for the disk, retry later", "");
+    private static final ErrorTemplate NOT_DURABLE = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE,
+            "JOURNAL_NOT_DURABLE", "The change was applied but could not be confirmed on disk in time", "");
+
+    private final InventoryStore store;
+    private final Durability durability;
+    private final JournalRingBuffer ring;
+    private final Path directory;
+    private final Path path;
+    private final int maxBatchSize;
+    private final long compactBytes;
+    private final long fullTimeoutNanos;
+    private final long fsyncTimeoutNanos;
+    private final Thread writer;
+    // Notified after every batch written while anyone waits, for durability or for room in the ring
+    private final Object durableMonitor = new Object();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong durable = new AtomicLong();
+    private final ThreadLocal<Boolean> replaying = ThreadLocal.withInitial(() -> false);
+    private final ThreadLocal<long[]> pendingSequence = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+    private final AtomicLong durabilityTimeouts = new AtomicLong();
+
+    private JournalFile file; // Only touched by the writer thread once it runs
+    private JournalFile.Replay recorded; // Read at construction, applied by run()
+    private volatile boolean started;
+    private volatile boolean running = true;
+
+    public InventoryJournal(InventoryStore store,
+                            @Value("${inventory.journal.dir:data/journal}") String directory,
+                            @Value("${inventory.journal.durability:MEMORY}") Durability durability,
+                            @Value("${inventory.journal.ring-capacity:65536}") int ringCapacity,
+                            @Value("${inventory.journal.max-batch-size:4096}") int maxBatchSize,
+                            @Value("${inventory.journal.compact-bytes:268435456}") long compactBytes,
+                            @Value("${inventory.journal.full-timeout-ms:1000}") long fullTimeoutMillis,
+                            @Value("${inventory.journal.fsync-timeout-ms:5000}") long fsyncTimeoutMillis) throws IOException {
+        this.store = store;
+        this.durability = durability;
+        this.maxBatchSize = maxBatchSize;
+        this.compactBytes = compactBytes;
+        this.fullTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(fullTimeoutMillis);
+        this.fsyncTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(fsyncTimeoutMillis);
+        this.directory = Path.of(directory);
+        this.path = this.directory.resolve(FILE_NAME);
+        Files.createDirectories(this.directory);
+        this.recorded = JournalFile.replay(path);
+        this.file = JournalFile.open(path);
+        if (file.length() > recorded.validBytes()) {
+            log.warn("Discarding {} bytes of incomplete records at the end of {}",
+                    file.length() - recorded.validBytes(), path);
+            file.truncate(recorded.validBytes());
+        }
+        this.ring = new JournalRingBuffer(ringCapacity);
+        store.addListener(this);
+        this.writer = new Thread(this::drain, "inventory-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Journal enabled at {} with durability {}", path, durability);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        JournalFile.Replay replay = recorded;
+        recorded = null;
+        if (replay.records() == 0) {
+            // Ordered with concurrent writes like any other change
+            store.runExclusively(() -> publish(JournalRingBuffer.RELOAD, 0, null, List.copyOf(store.values())));
+            log.info("Started a new journal from {} items", store.size());
+        } else {
+            replaying.set(true);
+            try {
+                store.runExclusively(() -> {
+                    store.loadAll(replay.items().values(), replay.reset());
+                    replay.deleted().forEach(store::delete);
+                    store.reserveIdsFrom(replay.maxId() + 1);
+                });
+            } finally {
+                replaying.set(false);
+            }
+            log.info("Replayed {} journal records, store size is now {}", replay.records(), store.size());
+        }
+        started = true;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    // Changes published but not yet on disk
+    public long getLag() {
+        return ring.published() - durable.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getFailedBatchCount() {
+        return failedBatches.get();
+    }
+
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    public long getRejectedWriteCount() {
+        return rejectedWrites.get();
+    }
+
+    public long getDurabilityTimeoutCount() {
+        return durabilityTimeouts.get();
+    }
+
+    // --- producer side, called under the store's write lock except for beforeWrite and afterCommit ---
+
+    // Before the write lock, so a writer waiting for room never holds up readers of the lock or the other writers
+    @Override
+    public void beforeWrite() {
+        if (hasRoom()) {
+            return;
+        }
+        long deadline = System.nanoTime() + fullTimeoutNanos;
+        if (!await(this::hasRoom, deadline)) {
+            rejectedWrites.incrementAndGet();
+            throw new JournalUnavailableException(BACKLOGGED,
+                    "Journal has " + getLag() + " changes waiting for the disk");
+        }
+    }
+
+    private boolean hasRoom() {
+        return ring.published() - ring.consumed() <= ring.capacity() / 2;
+    }
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (!replaying.get()) {
+            publish(JournalRingBuffer.PUT, current.getId(), current, null);
+        }
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        if (!replaying.get()) {
+            publish(JournalRingBuffer.DELETE, removed.getId(), null, null);
+        }
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        // Contents loaded before the journal is replayed are either replaced by it or recorded by run()
+        if (started && !replaying.get()) {
+            publish(JournalRingBuffer.RELOAD, 0, null, List.copyOf(items));
+        }
+    }
+
+    private void publish(byte type, long id, InventoryItem item, List<InventoryItem> items) {
+        long sequence = ring.publish(type, id, item, items);
+        if (durability == Durability.FSYNC) {
+            pendingSequence.get()[0] = sequence;
+        }
+    }
+
+    // Outside the write lock, so other writers keep filling the batch this thread waits for
+    @Override
+    public void afterCommit() {
+        long[] pending = pendingSequence.get();
+        if (pending[0] != 0) {
+            long sequence = pending[0];
+            pending[0] = 0;
+            awaitDurable(sequence);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        if (durable.get() >= sequence) {
+            return;
+        }
+        if (!await(() -> durable.get() >= sequence, System.nanoTime() + fsyncTimeoutNanos)) {
+            durabilityTimeouts.incrementAndGet();
+            throw new JournalUnavailableException(NOT_DURABLE, "Change " + sequence + " is not on disk yet");
+        }
+    }
+
+    // Waits for the writer to make the condition true; false if it did not by the deadline or is shutting down
+    private boolean await(BooleanSupplier condition, long deadlineNanos) {
+        waiting.incrementAndGet();
+        try {
+            synchronized (durableMonitor) {
+                while (!condition.getAsBoolean()) {
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(durableMonitor, remaining);
+                }
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    // --- consumer side, the writer thread ---
+
+    private void drain() {
+        long written = ring.consumed();
+        while (running || ring.published() > written) {
+            long available = ring.await(written, IDLE_PARK_NANOS);
+            if (available == written) {
+                continue;
+            }
+            long upTo = Math.min(available, written + maxBatchSize);
+            try {
+                write(written + 1, upTo);
+            } catch (IOException | RuntimeException e) {
+                failedBatches.incrementAndGet();
+                if (!running) {
+                    log.error("Could not write the last {} journal records on shutdown: {}", available - written,
+                            e.getMessage());
+                    break;
+                }
+                log.error("Could not write journal batch, retrying in {} ms: {}", RETRY_DELAY_MILLIS, e.getMessage());
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_DELAY_MILLIS));
+                continue;
+            }
+            ring.release(upTo);
+            written = upTo;
+            batches.incrementAndGet();
+            durable.set(upTo);
+            if (waiting.get() > 0) {
+                synchronized (durableMonitor) {
+                    durableMonitor.notifyAll();
+                }
+            }
+            compactIfNeeded();
+        }
+    }
+
+    private void write(long from, long to) throws IOException {
+        long length = file.length();
+        try {
+            for (long sequence = from; sequence <= to; sequence++) {
+                JournalRingBuffer.Entry entry = ring.get(sequence);
+                switch (entry.type) {
+                    case JournalRingBuffer.PUT -> file.put(entry.item);
+                    case JournalRingBuffer.DELETE -> file.delete(entry.id);
+                    case JournalRingBuffer.RELOAD -> {
+                        file.reset();
+                        for (InventoryItem item : entry.items) {
+                            file.put(item);
+                        }
+                    }
+                    default -> throw new IllegalStateException("Unknown journal entry type " + entry.type);
+                }
+            }
+            file.flush(true);
+        } catch (IOException | RuntimeException e) {
+            // Drop the partial batch so the retry does not append behind a torn record
+            file.truncate(length);
+            throw e;
+        }
+    }
+
+    /*
+     * The snapshot is read from the live store without the write lock, so it may already contain changes still
+     * waiting in the ring. Those are appended after it anyway, and replaying a change onto a state that already
+     * has it is harmless: every record carries the complete item.
+     */
+    private void compactIfNeeded() {
+        try {
+            if (!started || file.length() < compactBytes) {
+                return;
+            }
+            long previousLength = file.length();
+            Path compacted = directory.resolve(FILE_NAME + ".compact");
+            try (JournalFile snapshot = JournalFile.create(compacted)) {
+                snapshot.reset();
+                for (InventoryItem item : store.values()) {
+                    snapshot.put(item);
+                }
+                snapshot.flush(true);
+            }
+            Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            file.close();
+            file = JournalFile.open(path);
+            // Makes the rename itself durable
+            try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                directoryChannel.force(true);
+            }
+            compactions.incrementAndGet();
+            log.info("Compacted journal from {} to {} bytes", previousLength, file.length());
+        } catch (IOException e) {
+            log.warn("Could not compact journal, keeping the current file: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (durableMonitor) {
+            durableMonitor.notifyAll();
+        }
+        file.close();
+        log.info("Journal closed with {} unwritten changes", getLag());
+    }
+}
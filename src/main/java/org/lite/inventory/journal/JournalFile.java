@@ -0,0 +1,212 @@
+package org.lite.inventory.journal;
+
+import org.lite.inventory.model.InventoryItem;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal file. Each record is {@code [payload length][CRC32 of payload][payload]}, the payload
+ * being a type byte, the item id and, for puts, quantity, price and the UTF-8 name. Records are encoded into a
+ * buffer and reach the file on {@link #flush}, so a batch of records costs one write and at most one fsync.
+ * A record cut short by a crash fails its length or checksum check on replay, and the file is truncated there.
+ */
+final class JournalFile implements Closeable {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte RESET = 3; // Every item is removed; the records that follow rebuild the contents
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MIN_PAYLOAD_BYTES = 9;
+
+    /**
+     * The state recorded in a journal file.
+     *
+     * @param items items put and not deleted since the last reset, in first-put order
+     * @param deleted ids deleted and not put again, only tracked while no reset was seen
+     * @param reset whether the file starts over from a reset, in which case items are the complete contents
+     * @param validBytes length of the well-formed prefix of the file
+     */
+    record Replay(Map<Long, InventoryItem> items, Set<Long> deleted, boolean reset, long maxId,
+                  long records, long validBytes) {
+    }
+
+    private final FileChannel channel;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+
+    private JournalFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        channel.position(channel.size());
+    }
+
+    static JournalFile open(Path path) throws IOException {
+        return new JournalFile(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE));
+    }
+
+    static JournalFile create(Path path) throws IOException {
+        return new JournalFile(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    void put(InventoryItem item) throws IOException {
+        byte[] name = item.getName() != null ? item.getName().getBytes(StandardCharsets.UTF_8) : null;
+        int start = begin(MIN_PAYLOAD_BYTES + 16 + (name != null ? name.length : 0));
+        buffer.put(PUT).putLong(item.getId()).putInt(item.getQuantity()).putDouble(item.getPrice());
+        if (name != null) {
+            buffer.putInt(name.length).put(name);
+        } else {
+            buffer.putInt(-1);
+        }
+        end(start);
+    }
+
+    void delete(long id) throws IOException {
+        int start = begin(MIN_PAYLOAD_BYTES);
+        buffer.put(DELETE).putLong(id);
+        end(start);
+    }
+
+    void reset() throws IOException {
+        int start = begin(MIN_PAYLOAD_BYTES);
+        buffer.put(RESET).putLong(0);
+        end(start);
+    }
+
+    /**
+     * Writes the buffered records to the file, and forces them to the device if {@code sync} is set.
+     */
+    void flush(boolean sync) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Discards buffered records and anything written after the given length, to retry a failed batch.
+     */
+    void truncate(long length) throws IOException {
+        buffer.clear();
+        channel.truncate(length);
+        channel.position(length);
+    }
+
+    // Written length, excluding buffered records
+    long length() throws IOException {
+        return channel.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int begin(int payloadBytes) throws IOException {
+        int recordBytes = HEADER_BYTES + payloadBytes;
+        if (buffer.remaining() < recordBytes) {
+            flush(false);
+            if (buffer.capacity() < recordBytes) {
+                buffer = ByteBuffer.allocateDirect(recordBytes);
+            }
+        }
+        int start = buffer.position();
+        buffer.position(start + HEADER_BYTES);
+        return start;
+    }
+
+    private void end(int start) {
+        int payloadStart = start + HEADER_BYTES;
+        int payloadBytes = buffer.position() - payloadStart;
+        crc.reset();
+        crc.update(buffer.slice(payloadStart, payloadBytes));
+        buffer.putInt(start, payloadBytes);
+        buffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Reads a journal file up to its first malformed record.
+     */
+    static Replay replay(Path path) throws IOException {
+        Map<Long, InventoryItem> items = new LinkedHashMap<>();
+        Set<Long> deleted = new HashSet<>();
+        boolean reset = false;
+        long maxId = 0;
+        long records = 0;
+        long offset = 0;
+        if (!Files.exists(path)) {
+            return new Replay(items, deleted, false, 0, 0, 0);
+        }
+        long size = Files.size(path);
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (offset + HEADER_BYTES <= size) {
+                int payloadBytes = in.readInt();
+                int checksum = in.readInt();
+                if (payloadBytes < MIN_PAYLOAD_BYTES || payloadBytes > size - offset - HEADER_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[payloadBytes];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                byte type = record.get();
+                long id = record.getLong();
+                switch (type) {
+                    case PUT -> {
+                        int quantity = record.getInt();
+                        double price = record.getDouble();
+                        int nameBytes = record.getInt();
+                        String name = nameBytes >= 0
+                                ? new String(payload, record.position(), nameBytes, StandardCharsets.UTF_8) : null;
+                        items.put(id, new InventoryItem(id, name, quantity, price));
+                        deleted.remove(id);
+                    }
+                    case DELETE -> {
+                        items.remove(id);
+                        if (!reset) {
+                            deleted.add(id);
+                        }
+                    }
+                    case RESET -> {
+                        reset = true;
+                        items.clear();
+                        deleted.clear();
+                    }
+                    default -> throw new IOException("Unknown journal record type " + type + " at offset " + offset);
+                }
+                maxId = Math.max(maxId, id);
+                records++;
+                offset += HEADER_BYTES + payloadBytes;
+            }
+        } catch (EOFException e) {
+            // A record cut short; offset still marks the end of the last complete one
+        }
+        return new Replay(items, deleted, reset, maxId, records, offset);
+    }
+}
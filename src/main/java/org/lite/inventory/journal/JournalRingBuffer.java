@@ -0,0 +1,119 @@
+package org.lite.inventory.journal;
+
+import org.lite.inventory.model.InventoryItem;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of journal entries with one producer and one consumer, in the style of the LMAX Disruptor.
+ * Entries are allocated once and reused, and the two sides coordinate through a published and a consumed
+ * sequence only: publishing takes no lock and allocates nothing. The producer is whichever thread holds the
+ * store's write lock; the consumer is the journal writer thread. A full ring blocks the producer until the
+ * consumer catches up.
+ */
+final class JournalRingBuffer {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final byte RELOAD = 3;
+
+    private static final long FULL_BACKOFF_NANOS = 50_000;
+
+    static final class Entry {
+        byte type;
+        long id;
+        InventoryItem item;
+        List<InventoryItem> items; // RELOAD only
+    }
+
+    private final Entry[] entries;
+    private final int mask;
+    // Sequence n lives in entries[n & mask]; 0 means nothing published or consumed yet
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private volatile boolean consumerParked;
+    private volatile Thread consumer;
+
+    JournalRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Publishes one entry, waiting while the ring is full. Callers must be serialized.
+     *
+     * @return the sequence of the entry
+     */
+    long publish(byte type, long id, InventoryItem item, List<InventoryItem> items) {
+        long sequence = published.get() + 1;
+        while (sequence - consumed.get() > entries.length) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        Entry entry = entries[(int) (sequence & mask)];
+        entry.type = type;
+        entry.id = id;
+        entry.item = item;
+        entry.items = items;
+        published.set(sequence);
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return sequence;
+    }
+
+    long published() {
+        return published.get();
+    }
+
+    long consumed() {
+        return consumed.get();
+    }
+
+    /**
+     * Called by the consumer: returns the highest published sequence, parking for up to the timeout while
+     * nothing after {@code after} has been published.
+     */
+    long await(long after, long timeoutNanos) {
+        long available = published.get();
+        if (available > after) {
+            return available;
+        }
+        consumer = Thread.currentThread();
+        consumerParked = true;
+        // Re-check after announcing the park, so a publish in between is never missed
+        available = published.get();
+        if (available == after) {
+            LockSupport.parkNanos(this, timeoutNanos);
+            available = published.get();
+        }
+        consumerParked = false;
+        return available;
+    }
+
+    Entry get(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+    /**
+     * Called by the consumer once every entry up to the sequence is processed, handing the slots back.
+     */
+    void release(long sequence) {
+        for (long s = consumed.get() + 1; s <= sequence; s++) {
+            Entry entry = entries[(int) (s & mask)];
+            entry.item = null;
+            entry.items = null;
+        }
+        consumed.set(sequence);
+    }
+}
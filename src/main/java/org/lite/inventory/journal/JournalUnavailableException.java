@@ -0,0 +1,23 @@
+package org.lite.inventory.journal;
+
+import org.lite.inventory.error.ErrorTemplate;
+
+/**
+ * A write refused because the journal is too far behind, or answered before it reached the disk. Either way the
+ * caller should retry later; {@link org.lite.inventory.error.ApiExceptionHandler} answers it with a 503.
+ */
+public class JournalUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient ErrorTemplate error;
+
+    JournalUnavailableException(ErrorTemplate error, String message) {
+        super(message);
+        this.error = error;
+    }
+
+    public ErrorTemplate getError() {
+        return error;
+    }
+}
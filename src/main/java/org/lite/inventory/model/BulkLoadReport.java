@@ -0,0 +1,18 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkLoadReport {
+    private String file;
+    private String format;
+    private long bytes;
+    private int items;
+    private int chunks;
+    private boolean replace;
+    private long elapsedMillis;
+}
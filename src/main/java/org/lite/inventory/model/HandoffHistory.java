@@ -0,0 +1,21 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The retained stock history of a handed-off item, one array element per change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HandoffHistory {
+    private boolean existed;            // whether the item existed before the first change, with the initial values
+    private int initialQuantity;
+    private double initialPrice;
+    private long[] times;               // epoch milliseconds, in order
+    private int[] quantities;
+    private double[] prices;
+    private boolean[] present;          // false for a removal
+}
@@ -0,0 +1,19 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HandoffItem {
+    private InventoryItem item;
+    private long version;           // hybrid logical clock of the last write; 0 if not written since startup
+    private String origin;          // node that made the write; breaks version ties
+    private HandoffHistory history; // null if the item has no recorded changes or history is disabled
+
+    public HandoffItem(InventoryItem item, long version, String origin) {
+        this(item, version, origin, null);
+    }
+}
@@ -0,0 +1,18 @@
+package org.lite.inventory.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+public class InventoryStats {
+    private long itemCount;
+    private long totalQuantity;
+    private double totalValue;           // Sum of quantity * price
+    private long outOfStockCount;        // Items with a quantity of zero or less
+    private Map<String, Long> quantityHistogram;
+    private Map<String, Long> priceHistogram;
+    private Instant lastReconciled;      // Null until the first reconciliation
+    private long reconciliationMismatches;
+}
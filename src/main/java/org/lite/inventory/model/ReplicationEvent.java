@@ -0,0 +1,16 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicationEvent {
+    private long id;
+    private InventoryItem item;     // null when the item was deleted
+    private long version;           // hybrid logical clock of the write
+    private String origin;          // node that made the write; breaks version ties
+    private long originTimeMillis;  // wall clock at the origin, used to report replication lag
+}
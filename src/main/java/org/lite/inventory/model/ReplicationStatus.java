@@ -0,0 +1,19 @@
+package org.lite.inventory.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ReplicationStatus {
+    private String nodeId;
+    private List<String> peers;
+    private long idRangeStart;          // first id of the range new items are numbered from
+    private int pendingEvents;
+    private long shippedEvents;
+    private long appliedEvents;
+    private long droppedEvents;
+    private long failedShipments;
+    private long lastLagMillis;
+    private long maxLagMillis;
+}
@@ -0,0 +1,18 @@
+package org.lite.inventory.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ShardStatus {
+    private String nodeId;
+    private List<String> nodes;
+    private long idRangeStart;          // first id of the range new items are numbered from
+    private int localItems;
+    private long forwardedRequests;
+    private long handedOffItems;
+    private long receivedItems;
+    private long staleHandoffItems;     // handed-off copies ignored because the local copy was newer
+    private long failedHandoffs;
+}
@@ -0,0 +1,19 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHistoryPoint {
+    private Instant timestamp;   // Start of the bucket
+    private Integer quantity;    // At the end of the bucket; null if the item was removed by then
+    private Double price;        // At the end of the bucket; null if the item was removed by then
+    private int minQuantity;
+    private int maxQuantity;
+    private int changes;
+}
@@ -0,0 +1,19 @@
+package org.lite.inventory.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHistoryResponse {
+    private long itemId;
+    private Instant from;
+    private Instant to;
+    private long stepMillis;
+    private List<StockHistoryPoint> points;
+}
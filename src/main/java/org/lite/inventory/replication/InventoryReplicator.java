@@ -0,0 +1,355 @@
+package org.lite.inventory.replication;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.ReplicationEvent;
+import org.lite.inventory.model.ReplicationStatus;
+import org.lite.inventory.service.IdRanges;
+import org.lite.inventory.service.InventoryChangeListener;
+import org.lite.inventory.service.InventoryStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicates the {@link InventoryStore} across all inventory-service instances registered in Eureka.
+ * <p>
+ * Each item is a last-writer-wins register: every local write is stamped with a hybrid logical clock version
+ * and the origin node id, and a node only applies a remote write that is newer than what it holds. Deletes are
+ * kept as versioned tombstones for {@code tombstone-ttl-ms}. Because merging is idempotent and order-independent,
+ * delivery is best effort:
+ * <ul>
+ *     <li>Local writes are queued and pushed to every peer in batches every {@code ship-interval-ms}.</li>
+ *     <li>Every {@code anti-entropy-interval-ms} the node pulls a full snapshot from a random peer and merges it,
+ *     which repairs anything a failed or dropped push missed. A starting node does the same before it is
+ *     marked UP.</li>
+ * </ul>
+ * The register holds whole items, so concurrent writes to one item on different nodes do not combine: if two
+ * nodes each take 1 off a quantity of 10, both write 9 and one decrement is lost. Stock movements that must all
+ * count should be sent to one node, or the deployment sharded instead.
+ * <p>
+ * Reads are always served from the local store. Items that exist before the application is ready (mock data
+ * and the startup catalog) are assumed to be identical on every node and are not shipped. A bulk import after
+ * startup is stamped like any other write, items a replacing import dropped get tombstones, and peers are asked
+ * to pull the result.
+ * <p>
+ * Once the startup catalog is loaded, each node allocates ids from its own {@link IdRanges id range}, chosen
+ * to differ from the ranges of the peers it sees.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.replication.enabled", havingValue = "true")
+@Slf4j
+public final class InventoryReplicator implements InventoryChangeListener, ApplicationRunner {
+
+    static final String REPLICATION_PATH = "/api/inventory/replication";
+
+    private record Version(long clock, String origin, boolean deleted, long recordedAtMillis) {
+        boolean isNewerThan(Version other) {
+            return other == null || clock > other.clock || (clock == other.clock && origin.compareTo(other.origin) > 0);
+        }
+    }
+
+    private final InventoryStore store;
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final String nodeId;
+    private final String serviceId;
+
+    private final Map<Long, Version> versions = new ConcurrentHashMap<>();
+    private final BlockingQueue<ReplicationEvent> outbox;
+    private final AtomicLong clock = new AtomicLong();
+    private final ThreadLocal<Boolean> applyingRemote = ThreadLocal.withInitial(() -> false);
+    private final AtomicBoolean resyncPending = new AtomicBoolean();
+    private volatile boolean ready;
+    private volatile long idRangeStart;
+    // Items that existed when the node became ready and have not been written since; they carry no version
+    private long[] baselineIds = new long[0];
+
+    private final AtomicLong shipped = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failedShipments = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    @Value("${inventory.replication.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    @Value("${inventory.replication.tombstone-ttl-ms:3600000}")
+    private long tombstoneTtlMillis;
+
+    public InventoryReplicator(InventoryStore store, DiscoveryClient discoveryClient, RestTemplate restTemplate,
+                               ObjectProvider<Registration> registration,
+                               @Value("${spring.application.name}") String serviceId,
+                               @Value("${inventory.replication.outbox-capacity:100000}") int outboxCapacity) {
+        this.store = store;
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.serviceId = serviceId;
+        Registration self = registration.getIfAvailable();
+        this.nodeId = self != null ? self.getInstanceId() : UUID.randomUUID().toString();
+        this.outbox = new LinkedBlockingQueue<>(outboxCapacity);
+        store.addListener(this);
+        log.info("Replication enabled for node {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    // Runs after the startup catalog and the journal, so the rows they hold without ids are numbered from the
+    // shared range like on every other node, and own ids already in the store are never allocated again
+    @Override
+    public void run(ApplicationArguments args) {
+        List<ServiceInstance> peers = peers();
+        if (peers.isEmpty()) {
+            log.info("No replication peers found, starting with local state");
+        } else {
+            pullSnapshot(peers.get(ThreadLocalRandom.current().nextInt(peers.size())));
+        }
+        int tag = IdRanges.tagAvoiding(nodeId, peers.stream().map(ServiceInstance::getInstanceId).toList());
+        idRangeStart = IdRanges.start(tag);
+        store.setIdRange(IdRanges.start(tag), IdRanges.end(tag));
+        log.info("Allocating ids from {}", idRangeStart);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        store.runExclusively(() -> {
+            baselineIds = store.values().stream()
+                    .mapToLong(InventoryItem::getId)
+                    .filter(id -> !versions.containsKey(id))
+                    .sorted()
+                    .toArray();
+            ready = true;
+        });
+    }
+
+    // --- local writes ---
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (!applyingRemote.get()) {
+            record(current.getId(), current);
+        }
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        if (!applyingRemote.get()) {
+            record(removed.getId(), null);
+        }
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        if (applyingRemote.get() || !ready) {
+            return;
+        }
+        // A bulk import: stamp everything, and let peers pull the result instead of pushing it item by item.
+        // A replacing import dropped every item it did not contain, which peers must learn as deletes.
+        long now = System.currentTimeMillis();
+        versions.replaceAll((id, version) -> version.deleted() || store.exists(id)
+                ? version
+                : new Version(nextClock(), nodeId, true, now));
+        for (long id : baselineIds) {
+            if (!store.exists(id)) {
+                versions.put(id, new Version(nextClock(), nodeId, true, now));
+            }
+        }
+        for (InventoryItem item : items) {
+            versions.put(item.getId(), new Version(nextClock(), nodeId, false, now));
+        }
+        // Every live item has a version now
+        baselineIds = new long[0];
+        // Peers are called from the shipping thread, never under the store lock
+        resyncPending.set(true);
+    }
+
+    private void record(long id, InventoryItem item) {
+        long now = System.currentTimeMillis();
+        long version = nextClock();
+        versions.put(id, new Version(version, nodeId, item == null, now));
+        if (!outbox.offer(new ReplicationEvent(id, item, version, nodeId, now))) {
+            // Peers catch up through anti-entropy
+            dropped.incrementAndGet();
+        }
+    }
+
+    private long nextClock() {
+        long physical = System.currentTimeMillis() << 16;
+        return clock.updateAndGet(last -> Math.max(last + 1, physical));
+    }
+
+    // --- remote writes ---
+
+    /**
+     * Merges writes received from a peer, keeping whichever version of each item is newest.
+     */
+    public void apply(List<ReplicationEvent> events) {
+        long now = System.currentTimeMillis();
+        // Merge decisions and store writes must not interleave with local writes. The lock is taken once per
+        // slice of max-batch-size events, so merging a full snapshot never holds local writers up for long.
+        for (int from = 0; from < events.size(); from += maxBatchSize) {
+            List<ReplicationEvent> slice = events.subList(from, Math.min(events.size(), from + maxBatchSize));
+            store.runExclusively(() -> {
+                applyingRemote.set(true);
+                try {
+                    for (ReplicationEvent event : slice) {
+                        merge(event, now);
+                    }
+                } finally {
+                    applyingRemote.set(false);
+                }
+            });
+        }
+    }
+
+    private void merge(ReplicationEvent event, long now) {
+        clock.accumulateAndGet(event.getVersion(), Math::max);
+        Version incoming = new Version(event.getVersion(), event.getOrigin(), event.getItem() == null, now);
+        if (!incoming.isNewerThan(versions.get(event.getId()))) {
+            return;
+        }
+        if (event.getItem() == null) {
+            store.delete(event.getId());
+        } else {
+            store.put(event.getItem());
+        }
+        versions.put(event.getId(), incoming);
+        applied.incrementAndGet();
+        long lag = Math.max(0, now - event.getOriginTimeMillis());
+        lastLagMillis.set(lag);
+        maxLagMillis.accumulateAndGet(lag, Math::max);
+    }
+
+    /**
+     * The full replicated state: every live item and every unexpired tombstone, with its version.
+     */
+    public List<ReplicationEvent> snapshot() {
+        List<ReplicationEvent> events = new ArrayList<>(versions.size());
+        versions.forEach((id, version) -> {
+            InventoryItem item = version.deleted() ? null : store.findById(id).orElse(null);
+            if (version.deleted() || item != null) {
+                events.add(new ReplicationEvent(id, item, version.clock(), version.origin(), version.recordedAtMillis()));
+            }
+        });
+        return events;
+    }
+
+    public void resyncFrom(String peerNodeId) {
+        peers().stream()
+                .filter(peer -> peer.getInstanceId().equals(peerNodeId))
+                .findFirst()
+                .ifPresent(this::pullSnapshot);
+    }
+
+    public ReplicationStatus status() {
+        ReplicationStatus status = new ReplicationStatus();
+        status.setNodeId(nodeId);
+        status.setPeers(peers().stream().map(ServiceInstance::getInstanceId).toList());
+        status.setIdRangeStart(idRangeStart);
+        status.setPendingEvents(outbox.size());
+        status.setShippedEvents(shipped.get());
+        status.setAppliedEvents(applied.get());
+        status.setDroppedEvents(dropped.get());
+        status.setFailedShipments(failedShipments.get());
+        status.setLastLagMillis(lastLagMillis.get());
+        status.setMaxLagMillis(maxLagMillis.get());
+        return status;
+    }
+
+    // --- background work ---
+
+    @Scheduled(fixedDelayString = "${inventory.replication.ship-interval-ms:100}")
+    public void ship() {
+        if (resyncPending.getAndSet(false)) {
+            // Peers that miss the request still get the import through anti-entropy
+            for (ServiceInstance peer : peers()) {
+                try {
+                    restTemplate.postForLocation(peerUrl(peer, "/resync?from=" + nodeId), null);
+                } catch (RestClientException e) {
+                    log.warn("Could not ask peer {} to resync: {}", peer.getInstanceId(), e.getMessage());
+                }
+            }
+        }
+        while (!outbox.isEmpty()) {
+            List<ReplicationEvent> batch = new ArrayList<>(Math.min(outbox.size(), maxBatchSize));
+            outbox.drainTo(batch, maxBatchSize);
+            for (ServiceInstance peer : peers()) {
+                try {
+                    restTemplate.postForLocation(peerUrl(peer, "/events"), batch);
+                } catch (RestClientException e) {
+                    failedShipments.incrementAndGet();
+                    log.warn("Could not ship {} events to peer {}: {}", batch.size(), peer.getInstanceId(), e.getMessage());
+                }
+            }
+            shipped.addAndGet(batch.size());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${inventory.replication.anti-entropy-interval-ms:30000}",
+            fixedDelayString = "${inventory.replication.anti-entropy-interval-ms:30000}")
+    public void antiEntropy() {
+        long expiry = System.currentTimeMillis() - tombstoneTtlMillis;
+        versions.entrySet().removeIf(entry -> entry.getValue().deleted() && entry.getValue().recordedAtMillis() < expiry);
+
+        List<ServiceInstance> peers = peers();
+        if (!peers.isEmpty()) {
+            pullSnapshot(peers.get(ThreadLocalRandom.current().nextInt(peers.size())));
+        }
+    }
+
+    private void pullSnapshot(ServiceInstance peer) {
+        try {
+            List<ReplicationEvent> snapshot = restTemplate.exchange(peerUrl(peer, "/snapshot"), HttpMethod.GET,
+                    HttpEntity.EMPTY, new ParameterizedTypeReference<List<ReplicationEvent>>() {}).getBody();
+            if (snapshot != null) {
+                apply(snapshot);
+                log.debug("Merged snapshot of {} entries from peer {}", snapshot.size(), peer.getInstanceId());
+            }
+        } catch (RestClientException e) {
+            log.warn("Could not pull snapshot from peer {}: {}", peer.getInstanceId(), e.getMessage());
+        }
+    }
+
+    private List<ServiceInstance> peers() {
+        return discoveryClient.getInstances(serviceId).stream()
+                .filter(instance -> !nodeId.equals(instance.getInstanceId()))
+                .toList();
+    }
+
+    private String peerUrl(ServiceInstance peer, String path) {
+        return peer.getUri() + contextPath + REPLICATION_PATH + path;
+    }
+}
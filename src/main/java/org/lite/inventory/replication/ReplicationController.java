@@ -0,0 +1,87 @@
+package org.lite.inventory.replication;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.ReplicationEvent;
+import org.lite.inventory.model.ReplicationStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Peer-to-peer endpoints used by {@link InventoryReplicator}. Callers authenticate with their mTLS client
+ * certificate; only the status endpoint is meant for operators.
+ */
+@Tag(name = "Inventory Replication", description = "Replication between inventory-service instances")
+@Slf4j
+@RestController
+@RequestMapping(InventoryReplicator.REPLICATION_PATH)
+@ConditionalOnProperty(name = "inventory.replication.enabled", havingValue = "true")
+public class ReplicationController {
+
+    private final InventoryReplicator replicator;
+
+    public ReplicationController(InventoryReplicator replicator) {
+        this.replicator = replicator;
+    }
+
+    @Operation(summary = "Apply replicated writes",
+              description = "Merges a batch of writes shipped by a peer; writes older than the local version are ignored")
+    @ApiResponse(responseCode = "204", description = "Batch merged")
+    @PostMapping(value = "/events", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> applyEvents(@RequestBody List<ReplicationEvent> events) {
+        replicator.apply(events);
+        log.debug("Applied {} replicated events", events.size());
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get the replicated state",
+              description = "Returns every replicated item and tombstone with its version, for anti-entropy and initial sync")
+    @ApiResponse(responseCode = "200",
+                description = "Snapshot of the replicated state",
+                content = @Content(mediaType = "application/json",
+                        array = @ArraySchema(schema = @Schema(implementation = ReplicationEvent.class))))
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ReplicationEvent>> getSnapshot() {
+        return ResponseEntity.ok(replicator.snapshot());
+    }
+
+    @Operation(summary = "Pull a peer's state",
+              description = "Asks this node to pull and merge the snapshot of the given peer, sent after a bulk import")
+    @ApiResponse(responseCode = "202", description = "Resync started")
+    @PostMapping("/resync")
+    public ResponseEntity<Void> resync(
+        @Parameter(description = "Eureka instance id of the peer to pull from", required = true)
+        @RequestParam("from") String peerNodeId) {
+        Thread.startVirtualThread(() -> replicator.resyncFrom(peerNodeId));
+        return ResponseEntity.accepted().build();
+    }
+
+    @Operation(summary = "Get replication status",
+              description = "Returns this node's peers, event counters and observed replication lag")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Replication status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReplicationStatus.class)))
+    })
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ReplicationStatus> getStatus() {
+        return ResponseEntity.ok(replicator.status());
+    }
+}
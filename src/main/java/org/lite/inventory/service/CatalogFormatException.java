@@ -0,0 +1,27 @@
+package org.lite.inventory.service;
+
+/**
+ * A catalog line that could not be parsed. The message names the position and what was wrong but never the
+ * content of the line, since import errors are returned to the caller.
+ */
+public class CatalogFormatException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+    private final int column;
+
+    public CatalogFormatException(long line, int column, String reason) {
+        super("line " + line + ", column " + column + ": " + reason);
+        this.line = line;
+        this.column = column;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+}
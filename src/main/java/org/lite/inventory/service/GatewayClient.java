@@ -0,0 +1,57 @@
+package org.lite.inventory.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Collections;
+
+/**
+ * Calls to the API gateway's own administration endpoints.
+ */
+@Service
+@Slf4j
+public class GatewayClient {
+
+    private final RestTemplate restTemplate;
+
+    @Value("${gateway.base-url:http://localhost:8080}")
+    private String gatewayBaseUrl;
+
+    public GatewayClient(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Asks the gateway to reload its route configurations.
+     *
+     * @return the gateway's response body, or null if it sent none
+     * @throws RestClientException if the call failed
+     */
+    public String refreshRoutes() {
+        String url = gatewayBaseUrl + "/api/routes/refresh/routes";
+
+        // Create HttpHeaders with required headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        // Use exchange instead of getForEntity to include headers
+        ResponseEntity<String> response = restTemplate.exchange(
+                url,
+                HttpMethod.GET,
+                new HttpEntity<>(headers),
+                String.class
+        );
+
+        log.info("Gateway routes refresh response: {}", response.getBody());
+        return response.getBody();
+    }
+}
@@ -0,0 +1,56 @@
+package org.lite.inventory.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Splits the id space into ranges of 2^{@value #RANGE_BITS} ids, one per instance of a multi-instance deployment,
+ * so that instances allocating ids on their own never hand out the same id. A range is identified by a tag of
+ * {@value #TAG_BITS} bits derived from the instance id. Tag 0 is never handed out: its range holds the mock items
+ * and the catalog rows loaded at startup, which every instance numbers the same way. All ids stay below 2^53, so
+ * JavaScript clients read them exactly.
+ */
+public final class IdRanges {
+
+    public static final int TAG_BITS = 20;
+    public static final int RANGE_BITS = 32;
+
+    private static final int MAX_TAG = (1 << TAG_BITS) - 1;
+
+    private IdRanges() {
+    }
+
+    /**
+     * The tag derived from the instance id alone.
+     */
+    public static int tagOf(String nodeId) {
+        long hash = UUID.nameUUIDFromBytes(nodeId.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+        int tag = (int) (hash >>> (Long.SIZE - TAG_BITS));
+        return tag == 0 ? 1 : tag;
+    }
+
+    /**
+     * The tag of the instance, moved on to the next free tag if one of the given peers derives the same one. Two
+     * live instances only share a range if their ids collide on a tag that neither sees in use when it starts.
+     */
+    public static int tagAvoiding(String nodeId, Collection<String> peerIds) {
+        Set<Integer> taken = new HashSet<>();
+        peerIds.forEach(peerId -> taken.add(tagOf(peerId)));
+        int tag = tagOf(nodeId);
+        while (taken.contains(tag)) {
+            tag = tag == MAX_TAG ? 1 : tag + 1;
+        }
+        return tag;
+    }
+
+    public static long start(int tag) {
+        return (long) tag << RANGE_BITS;
+    }
+
+    public static long end(int tag) {
+        return start(tag) + (1L << RANGE_BITS);
+    }
+}
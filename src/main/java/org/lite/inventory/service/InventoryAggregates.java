@@ -0,0 +1,245 @@
+package org.lite.inventory.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryStats;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Inventory-wide totals and histograms, kept in step with the {@link InventoryStore} so that
+ * {@link #snapshot()} costs the same however many items there are.
+ * <p>
+ * Every change adjusts the totals by the difference between the old and the new item. Changes arrive one at a
+ * time under the store's write lock, so a single set of fields is enough and striped adders would buy nothing;
+ * a {@link StampedLock} only lets readers take a consistent snapshot without blocking. A periodic reconciliation
+ * recomputes everything with a parallel scan and corrects the totals if they drifted, which floating point
+ * rounding of {@code totalValue} eventually makes them do.
+ */
+@Component
+@Slf4j
+public final class InventoryAggregates implements InventoryChangeListener {
+
+    // Histogram buckets are decades: [0, 1), [1, 10), [10, 100), ... with everything beyond the last in it
+    private static final String[] BUCKET_LABELS = {"<1", "1-10", "10-100", "100-1000", "1000-10000", ">=10000"};
+    private static final int BUCKETS = BUCKET_LABELS.length;
+    private static final double VALUE_TOLERANCE = 1e-9;
+
+    /**
+     * Totals over a set of items. Used for the maintained totals and for the reconciliation scan.
+     */
+    private static final class Totals {
+        long items;
+        long quantity;
+        double value;
+        long outOfStock;
+        final long[] quantityBuckets = new long[BUCKETS];
+        final long[] priceBuckets = new long[BUCKETS];
+
+        void add(InventoryItem item, int sign) {
+            items += sign;
+            quantity += (long) sign * item.getQuantity();
+            value += sign * (item.getQuantity() * item.getPrice());
+            if (item.getQuantity() <= 0) {
+                outOfStock += sign;
+            }
+            quantityBuckets[bucket(item.getQuantity(), BUCKETS)] += sign;
+            priceBuckets[bucket(item.getPrice(), BUCKETS)] += sign;
+        }
+
+        Totals combine(Totals other) {
+            items += other.items;
+            quantity += other.quantity;
+            value += other.value;
+            outOfStock += other.outOfStock;
+            for (int i = 0; i < BUCKETS; i++) {
+                quantityBuckets[i] += other.quantityBuckets[i];
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                priceBuckets[i] += other.priceBuckets[i];
+            }
+            return this;
+        }
+
+        Totals subtract(Totals other) {
+            items -= other.items;
+            quantity -= other.quantity;
+            value -= other.value;
+            outOfStock -= other.outOfStock;
+            for (int i = 0; i < BUCKETS; i++) {
+                quantityBuckets[i] -= other.quantityBuckets[i];
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                priceBuckets[i] -= other.priceBuckets[i];
+            }
+            return this;
+        }
+
+        void copyFrom(Totals other) {
+            items = other.items;
+            quantity = other.quantity;
+            value = other.value;
+            outOfStock = other.outOfStock;
+            System.arraycopy(other.quantityBuckets, 0, quantityBuckets, 0, BUCKETS);
+            System.arraycopy(other.priceBuckets, 0, priceBuckets, 0, BUCKETS);
+        }
+
+        boolean matches(Totals other) {
+            return items == other.items && quantity == other.quantity && outOfStock == other.outOfStock
+                    && Math.abs(value - other.value) <= VALUE_TOLERANCE * Math.max(1, Math.abs(other.value))
+                    && Arrays.equals(quantityBuckets, other.quantityBuckets)
+                    && Arrays.equals(priceBuckets, other.priceBuckets);
+        }
+
+        @Override
+        public String toString() {
+            return "items=" + items + ", quantity=" + quantity + ", value=" + value + ", outOfStock=" + outOfStock;
+        }
+    }
+
+    private final InventoryStore store;
+    private final StampedLock lock = new StampedLock();
+    private final Totals totals = new Totals();
+    // Counts bulk reloads, which recompute the totals from scratch
+    private long reloads;
+    private volatile Instant lastReconciled;
+    private volatile long mismatches;
+
+    public InventoryAggregates(InventoryStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        long stamp = lock.writeLock();
+        try {
+            if (previous != null) {
+                totals.add(previous, -1);
+            }
+            totals.add(current, 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        long stamp = lock.writeLock();
+        try {
+            totals.add(removed, -1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        Totals scanned = scan(items);
+        long stamp = lock.writeLock();
+        try {
+            totals.copyFrom(scanned);
+            reloads++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public InventoryStats snapshot() {
+        Totals copy = copyTotals();
+        InventoryStats stats = new InventoryStats();
+        stats.setItemCount(copy.items);
+        stats.setTotalQuantity(copy.quantity);
+        stats.setTotalValue(Math.round(copy.value * 100) / 100.0);
+        stats.setOutOfStockCount(copy.outOfStock);
+        stats.setQuantityHistogram(histogram(copy.quantityBuckets));
+        stats.setPriceHistogram(histogram(copy.priceBuckets));
+        stats.setLastReconciled(lastReconciled);
+        stats.setReconciliationMismatches(mismatches);
+        return stats;
+    }
+
+    /**
+     * Recomputes the totals with a parallel scan of the store and corrects the maintained ones if they differ.
+     * Only copying the item references and the totals they add up to holds the store's write lock; the scan runs
+     * on that copy afterwards, and a correction adds the difference between the scan and the copied totals, so
+     * that changes made during the scan are kept.
+     */
+    @Scheduled(initialDelayString = "${inventory.stats.reconcile-interval-ms:300000}",
+               fixedDelayString = "${inventory.stats.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        List<InventoryItem> items = new ArrayList<>();
+        Totals copied = new Totals();
+        long[] reloadsAtCopy = new long[1];
+        store.runExclusively(() -> {
+            items.addAll(store.values());
+            long stamp = lock.readLock();
+            try {
+                copied.copyFrom(totals);
+                reloadsAtCopy[0] = reloads;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        });
+        Totals scanned = scan(items);
+        if (!copied.matches(scanned)) {
+            mismatches++;
+            log.warn("Inventory totals drifted from the store contents, correcting: maintained {}, scanned {}",
+                    copied, scanned);
+        }
+        long stamp = lock.writeLock();
+        try {
+            // A bulk reload during the scan already recomputed the totals
+            if (reloads == reloadsAtCopy[0]) {
+                totals.combine(scanned.subtract(copied));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        lastReconciled = Instant.now();
+    }
+
+    private Totals copyTotals() {
+        Totals copy = new Totals();
+        long stamp = lock.tryOptimisticRead();
+        copy.copyFrom(totals);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                copy.copyFrom(totals);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return copy;
+    }
+
+    private static Totals scan(Collection<InventoryItem> items) {
+        return items.parallelStream().collect(Totals::new, (sum, item) -> sum.add(item, 1), Totals::combine);
+    }
+
+    private static int bucket(double value, int buckets) {
+        int bucket = 0;
+        for (double bound = 1; value >= bound && bucket < buckets - 1; bound *= 10) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static Map<String, Long> histogram(long[] counts) {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            histogram.put(BUCKET_LABELS[i], counts[i]);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,358 @@
+package org.lite.inventory.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.BulkLoadReport;
+import org.lite.inventory.model.InventoryItem;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk-imports a catalog file into the {@link InventoryStore}. The file is split into line-aligned chunks,
+ * each chunk is memory-mapped and parsed on its own core, and the parsed items are handed to the store in
+ * a single {@link InventoryStore#loadAll} call. Nothing is written to the store if any line fails to parse; the
+ * {@link CatalogFormatException} then gives the line and column of the failure, but not the line itself.
+ * <p>
+ * The startup file may be anywhere, since it comes from the configuration. Files imported through the admin
+ * endpoint must be inside {@code inventory.bulk-load.import-dir}, see {@link #resolveImportFile}.
+ * <p>
+ * Supported formats:
+ * <ul>
+ *     <li>CSV: {@code id,name,quantity,price} with an optional header line. The id may be empty, in which case
+ *     the store assigns one. The name is everything between the first and the second-to-last comma, so it may
+ *     itself contain commas.</li>
+ *     <li>NDJSON: one {@link InventoryItem} JSON object per line.</li>
+ * </ul>
+ */
+@Service
+@Order(Ordered.HIGHEST_PRECEDENCE) // The startup catalog is the baseline that the replication sync merges into
+@Slf4j
+public class InventoryBulkLoader implements ApplicationRunner {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final long MIN_CHUNK_BYTES = 4L * 1024 * 1024;
+    private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE;
+
+    private final InventoryStore store;
+    private final ObjectMapper objectMapper;
+
+    @Value("${inventory.bulk-load.file:}")
+    private String startupFile;
+
+    @Value("${inventory.bulk-load.replace:true}")
+    private boolean startupReplace;
+
+    @Value("${inventory.bulk-load.import-dir:data/import}")
+    private Path importDir;
+
+    public InventoryBulkLoader(InventoryStore store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+    }
+
+    // Runs before ApplicationReadyEvent, so the instance is only marked UP in Eureka once the catalog is in memory
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (startupFile == null || startupFile.isBlank()) {
+            return;
+        }
+        BulkLoadReport report = load(Path.of(startupFile), null, startupReplace);
+        log.info("Startup catalog load finished: {}", report);
+    }
+
+    /**
+     * Resolves a path given by an API caller against the import directory. Symbolic links are followed before
+     * the check, so a link inside the directory cannot point a caller at a file outside it.
+     *
+     * @throws IllegalArgumentException if the path leads outside the import directory
+     * @throws IOException if the file does not exist
+     */
+    public Path resolveImportFile(String path) throws IOException {
+        Path root = importDir.toRealPath();
+        Path file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || !(file = file.toRealPath()).startsWith(root)) {
+            throw new IllegalArgumentException("Catalog files must be inside the import directory");
+        }
+        return file;
+    }
+
+    /**
+     * @param format the file format, or null to derive it from the file extension
+     * @throws CatalogFormatException if a line cannot be parsed
+     */
+    public BulkLoadReport load(Path file, Format format, boolean replace) throws IOException {
+        Format resolved = format != null ? format : formatOf(file);
+        long start = System.nanoTime();
+
+        List<InventoryItem> items;
+        int chunkCount;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            chunkCount = bounds.length - 1;
+            try {
+                List<List<InventoryItem>> parsed = IntStream.range(0, chunkCount)
+                        .parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], resolved))
+                        .toList();
+                items = new ArrayList<>(parsed.stream().mapToInt(List::size).sum());
+                parsed.forEach(items::addAll);
+            } catch (InvalidLine e) {
+                throw new CatalogFormatException(lineNumber(channel, e.lineOffset), e.column, e.getMessage());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        int loaded = store.loadAll(items, replace);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new BulkLoadReport(file.toString(), resolved.name(), file.toFile().length(), loaded, chunkCount,
+                replace, elapsedMillis);
+    }
+
+    private static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return Format.NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot derive the catalog format from file name: " + name);
+    }
+
+    /**
+     * Splits the file into roughly equal chunks, one or more per core, with every boundary moved forward to
+     * just past the next newline so that no line straddles two chunks.
+     */
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int cores = Runtime.getRuntime().availableProcessors();
+        long target = Math.max(MIN_CHUNK_BYTES, size / cores);
+        int count = (int) Math.max(1, Math.ceil((double) size / Math.min(target, MAX_CHUNK_BYTES / 2)));
+
+        List<Long> bounds = new ArrayList<>(count + 1);
+        bounds.add(0L);
+        for (int i = 1; i < count; i++) {
+            long boundary = nextLineStart(channel, size * i / count, size);
+            if (boundary > bounds.get(bounds.size() - 1) && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Only used to report a parse failure, so a sequential scan is fine
+    private static long lineNumber(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(65536);
+        long line = 1;
+        long position = 0;
+        while (position < offset) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), offset - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    line++;
+                }
+            }
+            position += read;
+        }
+        return line;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private List<InventoryItem> parseChunk(FileChannel channel, long start, long end, Format format) {
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            List<InventoryItem> items = new ArrayList<>((int) ((end - start) / 32));
+            int limit = buffer.limit();
+            int lineStart = 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                if (contentEnd > lineStart) {
+                    try {
+                        InventoryItem item = format == Format.CSV
+                                ? parseCsvLine(buffer, lineStart, contentEnd, start == 0 && lineStart == 0)
+                                : parseJsonLine(buffer, lineStart, contentEnd);
+                        if (item != null) {
+                            items.add(item);
+                        }
+                    } catch (InvalidLine e) {
+                        e.lineOffset = start + lineStart;
+                        throw e;
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+            return items;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InventoryItem parseCsvLine(ByteBuffer buffer, int from, int to, boolean firstLine) {
+        int firstComma = indexOf(buffer, from, to);
+        int lastComma = lastIndexOf(buffer, from, to);
+        int quantityComma = lastComma > firstComma ? lastIndexOf(buffer, firstComma + 1, lastComma) : -1;
+        if (firstComma < 0 || quantityComma <= firstComma) {
+            throw new InvalidLine(1, "expected id,name,quantity,price");
+        }
+        Long id;
+        try {
+            id = firstComma == from ? null : parseLong(buffer, from, firstComma, from, "id");
+        } catch (InvalidLine e) {
+            if (firstLine) {
+                return null; // header line
+            }
+            throw e;
+        }
+        byte[] name = new byte[quantityComma - firstComma - 1];
+        buffer.get(firstComma + 1, name);
+        long quantity = parseLong(buffer, quantityComma + 1, lastComma, from, "quantity");
+        if (quantity != (int) quantity) {
+            throw new InvalidLine(quantityComma + 2 - from, "quantity out of range");
+        }
+        double price;
+        try {
+            price = Double.parseDouble(ascii(buffer, lastComma + 1, to));
+        } catch (NumberFormatException e) {
+            price = Double.NaN;
+        }
+        if (!Double.isFinite(price)) {
+            throw new InvalidLine(lastComma + 2 - from, "invalid price");
+        }
+        return new InventoryItem(id, new String(name, StandardCharsets.UTF_8).trim(), (int) quantity, price);
+    }
+
+    private InventoryItem parseJsonLine(ByteBuffer buffer, int from, int to) {
+        byte[] line = new byte[to - from];
+        buffer.get(from, line);
+        try {
+            return objectMapper.readValue(line, InventoryItem.class);
+        } catch (JsonProcessingException e) {
+            // Jackson's message quotes the offending input, so only its position is passed on
+            int column = e.getLocation() != null ? Math.max(1, e.getLocation().getColumnNr()) : 1;
+            throw new InvalidLine(column, "invalid JSON item");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param lineStart the start of the line, to report the column of a malformed number
+     * @param field     the name of the field, for the error message
+     */
+    private static long parseLong(ByteBuffer buffer, int from, int to, int lineStart, String field) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        boolean negative = from < to && buffer.get(from) == '-';
+        int digitsFrom = negative ? from + 1 : from;
+        if (digitsFrom == to) {
+            throw new InvalidLine(from + 1 - lineStart, "missing " + field);
+        }
+        // Accumulated negatively, so that Long.MIN_VALUE is accepted and every overflow is caught
+        long value = 0;
+        for (int i = digitsFrom; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new InvalidLine(i + 1 - lineStart, "invalid " + field);
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new InvalidLine(from + 1 - lineStart, field + " out of range");
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw new InvalidLine(from + 1 - lineStart, field + " out of range");
+        }
+        return negative ? value : -value;
+    }
+
+    private static int indexOf(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == ',') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String ascii(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    /**
+     * A line that failed to parse, with its column; the chunk parser fills in where the line starts, and
+     * {@link #load} turns it into a {@link CatalogFormatException} with the line number.
+     */
+    private static final class InvalidLine extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int column;
+        private long lineOffset;
+
+        InvalidLine(int column, String reason) {
+            super(reason, null, false, false);
+            this.column = column;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.lite.inventory.service;
+
+import org.lite.inventory.model.InventoryItem;
+
+import java.util.Collection;
+
+/**
+ * Receives every change applied to the {@link InventoryStore}. Callbacks run on the mutating thread while the
+ * store's write lock is held, so they observe changes in the order they were applied and must stay cheap.
+ */
+public interface InventoryChangeListener {
+
+    /**
+     * An item was created or replaced.
+     *
+     * @param previous the item before the change, or null if it was created
+     */
+    void onPut(InventoryItem previous, InventoryItem current);
+
+    void onRemove(InventoryItem removed);
+
+    /**
+     * The store was (re)loaded in bulk, or the listener was just registered. Derived state should be rebuilt
+     * from the given items, which are the complete store contents.
+     */
+    void onReload(Collection<InventoryItem> items);
+
+    /**
+     * A store call that may change items is about to take the write lock. Runs on the mutating thread before the
+     * lock is taken, unless the thread already holds it, and may block. Throwing refuses the call before it has
+     * changed anything.
+     */
+    default void beforeWrite() {
+    }
+
+    /**
+     * A store call that may have changed items has completed and released the write lock. Runs on the same
+     * thread as the callbacks above, once per call however many items it changed, and may block.
+     */
+    default void afterCommit() {
+    }
+}
@@ -0,0 +1,354 @@
+package org.lite.inventory.service;
+
+import org.lite.inventory.model.InventoryItem;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Name lookups over the {@link InventoryStore}: exact case-insensitive matches, and prefix search for
+ * autocomplete. Names are split into lower-case word tokens held in a sorted term dictionary, so all tokens
+ * starting with a prefix form one contiguous range, which is the same lookup a prefix trie provides.
+ * <p>
+ * Posting lists are chunked {@link Postings}, updated in place: a write touches one chunk however many items
+ * share the token, and readers copy the ids out under the list's monitor. Writers are already serialized by the
+ * store.
+ */
+@Component
+public final class InventoryNameIndex implements InventoryChangeListener {
+
+    // Bounds the work for very short prefixes such as "a"; see search for how results are ranked beyond it
+    private static final int MAX_CANDIDATES = 10_000;
+
+    private static final long[] NO_IDS = new long[0];
+
+    private record Match(InventoryItem item, int prefixRank, int length) {
+    }
+
+    /**
+     * @param complete false if the ids were capped, in which case they are the lowest ids of the posting lists
+     *                 read before the cap was reached
+     */
+    private record Candidates(long[] ids, boolean complete) {
+    }
+
+    private static final Comparator<Match> RANK = Comparator
+            .comparingInt(Match::prefixRank)
+            .thenComparingInt(Match::length)
+            .thenComparingLong(match -> match.item().getId());
+
+    private final InventoryStore store;
+
+    private volatile NavigableMap<String, Postings> tokens = new ConcurrentSkipListMap<>();
+    private volatile Map<String, Postings> exactNames = new ConcurrentHashMap<>();
+
+    public InventoryNameIndex(InventoryStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    /**
+     * Items whose name equals the given name, ignoring case.
+     */
+    public List<InventoryItem> findByName(String name) {
+        if (name == null) {
+            return List.of();
+        }
+        Postings postings = exactNames.get(name.toLowerCase(Locale.ROOT));
+        long[] ids = postings != null ? postings.toArray() : NO_IDS;
+        List<InventoryItem> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            store.findById(id)
+                    // The item may have been renamed since, to no name at all
+                    .filter(item -> name.equalsIgnoreCase(item.getName()))
+                    .ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Top matches for an autocomplete query. Every query word must be a prefix of some word in the item name.
+     * Names that start with the query rank first, then shorter names, then lower ids.
+     * <p>
+     * Only query words matching at most {@value #MAX_CANDIDATES} items narrow the candidates, and the ranking is
+     * exact whenever at least one such word exists. When every query word matches more items than that, as a
+     * one-letter query can, only the first {@value #MAX_CANDIDATES} candidates of the first word are ranked: the
+     * lowest ids among its matching dictionary words, taken in dictionary order. The results are then valid
+     * matches but not necessarily the best ones; typing further narrows the query to an exact ranking.
+     */
+    public List<InventoryItem> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        // Intersect the posting ranges of every query word that is selective enough to read in full
+        long[] candidates = null;
+        for (String token : queryTokens) {
+            Candidates ids = candidates(token, MAX_CANDIDATES);
+            if (ids.complete()) {
+                candidates = candidates == null ? ids.ids() : intersect(candidates, ids.ids());
+            }
+        }
+        if (candidates == null) {
+            candidates = candidates(queryTokens.get(0), MAX_CANDIDATES).ids();
+        }
+
+        // Max-heap on rank: the head is the worst of the current top matches
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, RANK.reversed());
+        for (long id : candidates) {
+            InventoryItem item = store.findById(id).orElse(null);
+            if (item == null || item.getName() == null || !matchesAll(item.getName(), queryTokens)) {
+                continue;
+            }
+            Match match = new Match(item, startsWith(item.getName(), queryTokens) ? 0 : 1, item.getName().length());
+            if (top.size() == limit && RANK.compare(match, top.peek()) >= 0) {
+                continue;
+            }
+            top.offer(match);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Match> ranked = new ArrayList<>(top);
+        ranked.sort(RANK);
+        return ranked.stream().map(Match::item).toList();
+    }
+
+    /**
+     * Sorted, distinct ids of items with a word starting with the prefix, at most cap of them. Stops reading
+     * posting lists once more than cap ids were collected, in which case the result is marked incomplete.
+     */
+    private Candidates candidates(String prefix, int cap) {
+        long[] ids = new long[16];
+        int size = 0;
+        boolean complete = true;
+        for (Postings postings : tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            // One more than the cap, to tell a full result from a capped one
+            int wanted = Math.min(postings.size(), cap + 1 - size);
+            if (size + wanted > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + wanted));
+            }
+            size += postings.copyTo(ids, size, wanted);
+            if (size > cap) {
+                complete = false;
+                break;
+            }
+        }
+        // One item can have several words sharing the prefix
+        Arrays.sort(ids, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return new Candidates(Arrays.copyOf(ids, Math.min(distinct, cap)), complete);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    // Matching works on the raw name so that ranking thousands of candidates allocates nothing per candidate
+    private static boolean matchesAll(String name, List<String> queryTokens) {
+        for (String queryToken : queryTokens) {
+            if (!hasWordStartingWith(name, queryToken)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String name, String prefix) {
+        for (int i = nextWordStart(name, 0); i < name.length(); i = nextWordStart(name, skipWord(name, i))) {
+            if (wordStartsWith(name, i, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // True if the name reads like the query typed so far: leading words equal, last query word a prefix
+    private static boolean startsWith(String name, List<String> queryTokens) {
+        int position = nextWordStart(name, 0);
+        int last = queryTokens.size() - 1;
+        for (int t = 0; t <= last; t++) {
+            if (position >= name.length() || !wordStartsWith(name, position, queryTokens.get(t))) {
+                return false;
+            }
+            int wordEnd = skipWord(name, position);
+            if (t < last && wordEnd - position != queryTokens.get(t).length()) {
+                return false;
+            }
+            position = nextWordStart(name, wordEnd);
+        }
+        return true;
+    }
+
+    // Query words hold only letters and digits, so a match can never run past the end of the word
+    private static boolean wordStartsWith(String name, int wordStart, String prefix) {
+        return name.regionMatches(true, wordStart, prefix, 0, prefix.length());
+    }
+
+    private static int nextWordStart(String text, int from) {
+        int i = from;
+        while (i < text.length() && !Character.isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWord(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>(4);
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (previous != null) {
+            if (previous.getName() != null && previous.getName().equals(current.getName())) {
+                return;
+            }
+            unindex(previous);
+        }
+        if (current.getName() == null) {
+            return;
+        }
+        for (String token : tokenize(current.getName())) {
+            addId(tokens, token, current.getId());
+        }
+        addId(exactNames, current.getName().toLowerCase(Locale.ROOT), current.getId());
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        unindex(removed);
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        Map<String, long[]> tokenIds = new HashMap<>();
+        Map<String, long[]> nameIds = new HashMap<>();
+        for (InventoryItem item : items) {
+            if (item.getName() == null) {
+                continue;
+            }
+            for (String token : tokenize(item.getName())) {
+                append(tokenIds, token, item.getId());
+            }
+            append(nameIds, item.getName().toLowerCase(Locale.ROOT), item.getId());
+        }
+        TreeMap<String, Postings> tokenPostings = new TreeMap<>();
+        tokenIds.forEach((token, ids) -> tokenPostings.put(token, Postings.of(trimAndSort(ids))));
+        Map<String, Postings> namePostings = new HashMap<>(nameIds.size() * 4 / 3 + 1);
+        nameIds.forEach((name, ids) -> namePostings.put(name, Postings.of(trimAndSort(ids))));
+        // Built from a sorted map, the skip list is assembled in linear time
+        tokens = new ConcurrentSkipListMap<>(tokenPostings);
+        exactNames = new ConcurrentHashMap<>(namePostings);
+    }
+
+    private void unindex(InventoryItem item) {
+        if (item.getName() == null) {
+            return;
+        }
+        for (String token : tokenize(item.getName())) {
+            removeId(tokens, token, item.getId());
+        }
+        removeId(exactNames, item.getName().toLowerCase(Locale.ROOT), item.getId());
+    }
+
+    private static void addId(Map<String, Postings> index, String key, long id) {
+        Postings postings = index.get(key);
+        if (postings == null) {
+            index.put(key, new Postings(id));
+        } else {
+            postings.add(id);
+        }
+    }
+
+    private static void removeId(Map<String, Postings> index, String key, long id) {
+        Postings postings = index.get(key);
+        if (postings != null && postings.remove(id) && postings.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // During a rebuild, slot 0 of each array holds the number of ids that follow it
+    private static void append(Map<String, long[]> postings, String key, long id) {
+        long[] ids = postings.get(key);
+        if (ids == null) {
+            postings.put(key, new long[] {1, id});
+            return;
+        }
+        int size = (int) ids[0];
+        if (size + 1 == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            postings.put(key, ids);
+        }
+        ids[size + 1] = id;
+        ids[0] = size + 1;
+    }
+
+    private static long[] trimAndSort(long[] ids) {
+        long[] result = Arrays.copyOfRange(ids, 1, (int) ids[0] + 1);
+        Arrays.sort(result);
+        // A name can repeat a word
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return distinct == result.length ? result : Arrays.copyOf(result, distinct);
+    }
+}
@@ -0,0 +1,137 @@
+package org.lite.inventory.service;
+
+import org.lite.inventory.model.InventoryItem;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Sorted secondary indexes on item price and quantity, kept in step with the {@link InventoryStore} so range
+ * queries cost O(log n + k) instead of a scan over every item.
+ * <p>
+ * Index entries only carry the sort key and the item id. Matches are resolved against the store and the
+ * predicate is re-checked on the stored item, so a reader racing a mutation never returns an item whose
+ * current values fall outside the requested range.
+ */
+@Component
+public final class InventoryRangeIndex implements InventoryChangeListener {
+
+    private record PriceKey(double price, long id) implements Comparable<PriceKey> {
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            return byPrice != 0 ? byPrice : Long.compare(id, other.id);
+        }
+    }
+
+    private record QuantityKey(int quantity, long id) implements Comparable<QuantityKey> {
+        @Override
+        public int compareTo(QuantityKey other) {
+            int byQuantity = Integer.compare(quantity, other.quantity);
+            return byQuantity != 0 ? byQuantity : Long.compare(id, other.id);
+        }
+    }
+
+    private final InventoryStore store;
+
+    // Swapped wholesale on reload so queries keep using the old index while a new one is built
+    private volatile NavigableSet<PriceKey> byPrice = new ConcurrentSkipListSet<>();
+    private volatile NavigableSet<QuantityKey> byQuantity = new ConcurrentSkipListSet<>();
+
+    public InventoryRangeIndex(InventoryStore store) {
+        this.store = store;
+        store.addListener(this);
+    }
+
+    /**
+     * Items priced within [minPrice, maxPrice] whose quantity is at least minQuantity, in ascending price order.
+     * A range with a NaN bound is empty.
+     */
+    public List<InventoryItem> findByPrice(double minPrice, double maxPrice, int minQuantity, int limit) {
+        List<InventoryItem> result = new ArrayList<>();
+        if (!(minPrice <= maxPrice)) {
+            return result;
+        }
+        for (PriceKey key : byPrice.subSet(new PriceKey(minPrice, Long.MIN_VALUE), true,
+                new PriceKey(maxPrice, Long.MAX_VALUE), true)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Optional<InventoryItem> item = store.findById(key.id());
+            if (item.isPresent()
+                    && item.get().getPrice() >= minPrice && item.get().getPrice() <= maxPrice
+                    && item.get().getQuantity() >= minQuantity) {
+                result.add(item.get());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Items whose quantity is within [minQuantity, maxQuantity], in ascending quantity order.
+     */
+    public List<InventoryItem> findByQuantity(int minQuantity, int maxQuantity, int limit) {
+        List<InventoryItem> result = new ArrayList<>();
+        if (minQuantity > maxQuantity) {
+            return result;
+        }
+        for (QuantityKey key : byQuantity.subSet(new QuantityKey(minQuantity, Long.MIN_VALUE), true,
+                new QuantityKey(maxQuantity, Long.MAX_VALUE), true)) {
+            if (result.size() >= limit) {
+                break;
+            }
+            Optional<InventoryItem> item = store.findById(key.id());
+            if (item.isPresent()
+                    && item.get().getQuantity() >= minQuantity && item.get().getQuantity() <= maxQuantity) {
+                result.add(item.get());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (previous != null) {
+            if (previous.getPrice() != current.getPrice()) {
+                byPrice.remove(new PriceKey(previous.getPrice(), previous.getId()));
+            }
+            if (previous.getQuantity() != current.getQuantity()) {
+                byQuantity.remove(new QuantityKey(previous.getQuantity(), previous.getId()));
+            }
+        }
+        byPrice.add(new PriceKey(current.getPrice(), current.getId()));
+        byQuantity.add(new QuantityKey(current.getQuantity(), current.getId()));
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        byPrice.remove(new PriceKey(removed.getPrice(), removed.getId()));
+        byQuantity.remove(new QuantityKey(removed.getQuantity(), removed.getId()));
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        InventoryItem[] snapshot = items.toArray(new InventoryItem[0]);
+        PriceKey[] prices = new PriceKey[snapshot.length];
+        QuantityKey[] quantities = new QuantityKey[snapshot.length];
+        for (int i = 0; i < snapshot.length; i++) {
+            prices[i] = new PriceKey(snapshot[i].getPrice(), snapshot[i].getId());
+            quantities[i] = new QuantityKey(snapshot[i].getQuantity(), snapshot[i].getId());
+        }
+        // Inserting in key order makes every insertion walk the same recently used index nodes
+        Arrays.parallelSort(prices);
+        Arrays.parallelSort(quantities);
+        NavigableSet<PriceKey> newByPrice = new ConcurrentSkipListSet<>();
+        NavigableSet<QuantityKey> newByQuantity = new ConcurrentSkipListSet<>();
+        newByPrice.addAll(Arrays.asList(prices));
+        newByQuantity.addAll(Arrays.asList(quantities));
+        byPrice = newByPrice;
+        byQuantity = newByQuantity;
+    }
+}
@@ -0,0 +1,353 @@
+package org.lite.inventory.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.tracing.Span;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+/**
+ * In-memory inventory store. Reads are lock-free; mutations are serialized by a single write lock
+ * so that every change is applied in one well-defined order and published to the registered
+ * {@link InventoryChangeListener}s in that order. Stored items are never mutated in place, a change always
+ * replaces the stored instance.
+ * <p>
+ * Before a mutating call takes the lock, and once it has released it, listeners get
+ * {@link InventoryChangeListener#beforeWrite} and {@link InventoryChangeListener#afterCommit} on the same thread,
+ * which lets a listener hold the caller back (for example until there is room for the change, or until it is
+ * durable) without holding up other writers. When the request is traced, every mutation records a {@code store.*} span covering the
+ * wait for the lock, the listeners and {@code afterCommit}.
+ */
+@Service
+@Slf4j
+public class InventoryStore {
+
+    private final Map<Long, InventoryItem> items = new ConcurrentHashMap<>();
+    private final AtomicLong idCounter = new AtomicLong(1);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<InventoryChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile LongPredicate idFilter = id -> true;
+    // Ids below the counter are never allocated, so the range only needs its end
+    private volatile long idRangeEnd = Long.MAX_VALUE;
+    private final Tracer tracer;
+
+    public InventoryStore(Tracer tracer) {
+        this.tracer = tracer;
+        // Initialize with some mock data
+        addMockItem("Laptop", 10, 999.99);
+        addMockItem("Smartphone", 20, 699.99);
+        addMockItem("Headphones", 30, 149.99);
+    }
+
+    private void addMockItem(String name, int quantity, double price) {
+        long id = idCounter.getAndIncrement();
+        items.put(id, new InventoryItem(id, name, quantity, price));
+    }
+
+    /**
+     * Registers a listener and immediately replays the current contents to it through
+     * {@link InventoryChangeListener#onReload}, so it never misses a change.
+     */
+    public void addListener(InventoryChangeListener listener) {
+        writeLock.lock();
+        try {
+            listeners.add(listener);
+            listener.onReload(items.values());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public Optional<InventoryItem> findById(long id) {
+        return Optional.ofNullable(items.get(id));
+    }
+
+    public boolean exists(long id) {
+        return items.containsKey(id);
+    }
+
+    public List<InventoryItem> findAll() {
+        return new ArrayList<>(items.values());
+    }
+
+    public Collection<InventoryItem> values() {
+        return items.values();
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public InventoryItem create(String name, int quantity, double price) {
+        try (Span span = tracer.startSpan("store.create")) {
+            lockForWrite();
+            try {
+                long id = nextId();
+                span.setAttribute("item.id", id);
+                InventoryItem item = new InventoryItem(id, name, quantity, price);
+                items.put(id, item);
+                listeners.forEach(listener -> listener.onPut(null, item));
+                return item;
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    /**
+     * Replaces all fields of an existing item.
+     *
+     * @return the stored item, or empty if no item exists with the given id
+     */
+    public Optional<InventoryItem> replace(long id, String name, int quantity, double price) {
+        try (Span span = tracer.startSpan("store.replace")) {
+            span.setAttribute("item.id", id);
+            lockForWrite();
+            try {
+                InventoryItem existing = items.get(id);
+                if (existing == null) {
+                    return Optional.empty();
+                }
+                InventoryItem item = new InventoryItem(id, name, quantity, price);
+                items.put(id, item);
+                listeners.forEach(listener -> listener.onPut(existing, item));
+                return Optional.of(item);
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    /**
+     * Applies the non-null fields of the patch to an existing item.
+     *
+     * @return the stored item, or empty if no item exists with the given id
+     */
+    public Optional<InventoryItem> patch(long id, InventoryItemPatch patch) {
+        try (Span span = tracer.startSpan("store.patch")) {
+            span.setAttribute("item.id", id);
+            lockForWrite();
+            try {
+                InventoryItem existing = items.get(id);
+                if (existing == null) {
+                    return Optional.empty();
+                }
+                InventoryItem item = new InventoryItem(
+                        id,
+                        patch.getName() != null ? patch.getName() : existing.getName(),
+                        patch.getQuantity() != null ? patch.getQuantity() : existing.getQuantity(),
+                        patch.getPrice() != null ? patch.getPrice() : existing.getPrice());
+                items.put(id, item);
+                listeners.forEach(listener -> listener.onPut(existing, item));
+                return Optional.of(item);
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    public boolean delete(long id) {
+        try (Span span = tracer.startSpan("store.delete")) {
+            span.setAttribute("item.id", id);
+            lockForWrite();
+            try {
+                InventoryItem removed = items.remove(id);
+                if (removed == null) {
+                    return false;
+                }
+                listeners.forEach(listener -> listener.onRemove(removed));
+                return true;
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    /**
+     * Stores an item under its own id, creating or replacing it. Unlike {@link #create}, no id is allocated; an id
+     * inside this instance's id range (see {@link #setIdRange}) moves the counter past it, while ids allocated
+     * elsewhere, for example on a replication peer, never shift local allocation.
+     */
+    public void put(InventoryItem item) {
+        try (Span span = tracer.startSpan("store.put")) {
+            span.setAttribute("item.id", item.getId());
+            lockForWrite();
+            try {
+                reserveIdsFrom(item.getId() + 1);
+                InventoryItem previous = items.put(item.getId(), item);
+                listeners.forEach(listener -> listener.onPut(previous, item));
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    /**
+     * Runs the action while holding the write lock, so that a check followed by one or more store calls is
+     * applied atomically with respect to every other mutation.
+     */
+    @SuppressWarnings("try") // The span only needs to be open while the action runs
+    public void runExclusively(Runnable action) {
+        try (Span span = tracer.startSpan("store.runExclusively")) {
+            lockForWrite();
+            try {
+                action.run();
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    /**
+     * Restricts id allocation to ids accepted by the filter; ids it rejects are skipped. Lets each instance of a
+     * sharded deployment allocate only ids it owns, so instances never hand out the same id.
+     */
+    public void setIdFilter(LongPredicate idFilter) {
+        this.idFilter = idFilter;
+    }
+
+    // Listeners get beforeWrite before the outermost store call takes the lock, so they can hold it back or refuse it
+    private void lockForWrite() {
+        if (!writeLock.isHeldByCurrentThread()) {
+            listeners.forEach(InventoryChangeListener::beforeWrite);
+        }
+        writeLock.lock();
+    }
+
+    // Listeners get afterCommit once the outermost store call has released the lock. Every listener gets it even
+    // if one fails; the first failure is rethrown to the caller.
+    private void unlockAndCommit() {
+        writeLock.unlock();
+        if (writeLock.isHeldByCurrentThread()) {
+            return;
+        }
+        RuntimeException failure = null;
+        for (InventoryChangeListener listener : listeners) {
+            try {
+                listener.afterCommit();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Restricts id allocation to [start, end), the range of this instance in a multi-instance deployment (see
+     * {@link IdRanges}). Allocation continues after the highest id already stored in the range; from then on only
+     * ids inside the range move the counter.
+     */
+    public void setIdRange(long start, long end) {
+        writeLock.lock();
+        try {
+            long next = start;
+            for (long id : items.keySet()) {
+                if (id >= start && id < end) {
+                    next = Math.max(next, id + 1);
+                }
+            }
+            idRangeEnd = end;
+            idCounter.set(next);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Called under the write lock
+    private long nextId() {
+        long id;
+        do {
+            id = idCounter.getAndIncrement();
+            if (id >= idRangeEnd) {
+                throw new IllegalStateException("The id range of this instance is exhausted");
+            }
+        } while (!idFilter.test(id));
+        return id;
+    }
+
+    /**
+     * Moves the id counter forward so the next allocated id is at least the given value, unless the value lies
+     * beyond this instance's id range.
+     */
+    public void reserveIdsFrom(long nextId) {
+        if (nextId <= idRangeEnd) {
+            idCounter.accumulateAndGet(nextId, Math::max);
+        }
+    }
+
+    /**
+     * Loads a batch of items in one step. Items without an id are assigned one; items with an id
+     * overwrite any existing entry and advance the id counter past them, unless they lie beyond this instance's
+     * id range.
+     *
+     * @param replace clear the store before loading
+     * @return the number of distinct items stored; an item repeating the id of an earlier one in the batch
+     * replaces it and is not counted again
+     */
+    public int loadAll(Collection<InventoryItem> batch, boolean replace) {
+        try (Span span = tracer.startSpan("store.loadAll")) {
+            span.setAttribute("batch.size", batch.size());
+            lockForWrite();
+            try {
+                if (replace) {
+                    items.clear();
+                }
+                long maxId = 0;
+                long[] ids = new long[batch.size()];
+                int idCount = 0;
+                for (InventoryItem item : batch) {
+                    if (item.getId() != null) {
+                        if (item.getId() < idRangeEnd) {
+                            maxId = Math.max(maxId, item.getId());
+                        }
+                        ids[idCount++] = item.getId();
+                    }
+                }
+                int loaded = batch.size() - idCount + distinct(ids, idCount);
+                reserveIdsFrom(maxId + 1);
+                for (InventoryItem item : batch) {
+                    InventoryItem stored = item.getId() != null
+                            ? item
+                            : new InventoryItem(nextId(), item.getName(), item.getQuantity(), item.getPrice());
+                    items.put(stored.getId(), stored);
+                }
+                // Derived state is rebuilt once from the final contents rather than updated item by item
+                listeners.forEach(listener -> listener.onReload(items.values()));
+                log.info("Loaded {} items into the store (replace={}), store size is now {}", loaded, replace, items.size());
+                return loaded;
+            } finally {
+                unlockAndCommit();
+            }
+        }
+    }
+
+    private static int distinct(long[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+}
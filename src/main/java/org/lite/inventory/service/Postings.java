@@ -0,0 +1,189 @@
+package org.lite.inventory.service;
+
+import java.util.Arrays;
+
+/**
+ * A sorted set of item ids, held as a list of sorted chunks of at most {@link #MAX_CHUNK} ids. Adding or removing
+ * an id shifts the ids of one chunk only, so a posting list shared by millions of items changes in constant time;
+ * a full chunk is split in two, or, when ids arrive in increasing order as new items do, followed by a new one.
+ * Slot 0 of each chunk holds the number of ids that follow it.
+ * <p>
+ * Writers are serialized by the store. Readers synchronize on the instance like writers do and copy the ids out,
+ * so they never see a chunk halfway through a change.
+ */
+final class Postings {
+
+    static final int MAX_CHUNK = 128;
+
+    private long[][] chunks;
+    private int chunkCount;
+    private int size;
+
+    Postings(long id) {
+        chunks = new long[][] {{1, id}};
+        chunkCount = 1;
+        size = 1;
+    }
+
+    private Postings(long[][] chunks, int size) {
+        this.chunks = chunks;
+        this.chunkCount = chunks.length;
+        this.size = size;
+    }
+
+    /**
+     * @param ids sorted, distinct ids; not empty
+     */
+    static Postings of(long[] ids) {
+        long[][] chunks = new long[(ids.length + MAX_CHUNK - 1) / MAX_CHUNK][];
+        for (int c = 0; c < chunks.length; c++) {
+            int from = c * MAX_CHUNK;
+            int count = Math.min(MAX_CHUNK, ids.length - from);
+            long[] chunk = new long[count + 1];
+            chunk[0] = count;
+            System.arraycopy(ids, from, chunk, 1, count);
+            chunks[c] = chunk;
+        }
+        return new Postings(chunks, ids.length);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return false if the id was already present
+     */
+    synchronized boolean add(long id) {
+        int c = chunkFor(id);
+        long[] chunk = chunks[c];
+        int count = (int) chunk[0];
+        int index = Arrays.binarySearch(chunk, 1, count + 1, id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (count == MAX_CHUNK) {
+            if (c == chunkCount - 1 && insertAt == count + 1) {
+                insertChunk(c + 1, new long[] {0, 0, 0, 0});
+            } else {
+                split(c);
+            }
+            return add(id);
+        }
+        if (count + 1 == chunk.length) {
+            chunk = Arrays.copyOf(chunk, Math.min(chunk.length * 2, MAX_CHUNK + 1));
+            chunks[c] = chunk;
+        }
+        System.arraycopy(chunk, insertAt, chunk, insertAt + 1, count + 1 - insertAt);
+        chunk[insertAt] = id;
+        chunk[0] = count + 1;
+        size++;
+        return true;
+    }
+
+    /**
+     * @return false if the id was not present
+     */
+    synchronized boolean remove(long id) {
+        int c = chunkFor(id);
+        long[] chunk = chunks[c];
+        int count = (int) chunk[0];
+        int index = Arrays.binarySearch(chunk, 1, count + 1, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(chunk, index + 1, chunk, index, count - index);
+        chunk[0] = --count;
+        size--;
+        if (count == 0 && chunkCount > 1) {
+            removeChunk(c);
+        } else if (c + 1 < chunkCount && count + chunks[c + 1][0] <= MAX_CHUNK / 2) {
+            merge(c);
+        }
+        return true;
+    }
+
+    /**
+     * Copies up to {@code max} of the lowest ids into the array.
+     *
+     * @return the number of ids copied
+     */
+    synchronized int copyTo(long[] target, int offset, int max) {
+        int copied = 0;
+        for (int c = 0; c < chunkCount && copied < max; c++) {
+            int count = (int) Math.min(chunks[c][0], max - copied);
+            System.arraycopy(chunks[c], 1, target, offset + copied, count);
+            copied += count;
+        }
+        return copied;
+    }
+
+    synchronized long[] toArray() {
+        long[] ids = new long[size];
+        copyTo(ids, 0, size);
+        return ids;
+    }
+
+    // The first chunk whose last id is not below the given one, or the last chunk
+    private int chunkFor(long id) {
+        int low = 0;
+        int high = chunkCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long[] chunk = chunks[middle];
+            if (chunk[0] > 0 && chunk[(int) chunk[0]] >= id) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void split(int c) {
+        long[] chunk = chunks[c];
+        int count = (int) chunk[0];
+        int half = count / 2;
+        long[] left = new long[MAX_CHUNK + 1];
+        long[] right = new long[MAX_CHUNK + 1];
+        left[0] = half;
+        right[0] = count - half;
+        System.arraycopy(chunk, 1, left, 1, half);
+        System.arraycopy(chunk, 1 + half, right, 1, count - half);
+        chunks[c] = left;
+        insertChunk(c + 1, right);
+    }
+
+    private void merge(int c) {
+        long[] chunk = chunks[c];
+        long[] next = chunks[c + 1];
+        int count = (int) chunk[0];
+        int nextCount = (int) next[0];
+        if (count + nextCount + 1 > chunk.length) {
+            chunk = Arrays.copyOf(chunk, count + nextCount + 1);
+            chunks[c] = chunk;
+        }
+        System.arraycopy(next, 1, chunk, count + 1, nextCount);
+        chunk[0] = count + nextCount;
+        removeChunk(c + 1);
+    }
+
+    private void insertChunk(int at, long[] chunk) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        System.arraycopy(chunks, at, chunks, at + 1, chunkCount - at);
+        chunks[at] = chunk;
+        chunkCount++;
+    }
+
+    private void removeChunk(int at) {
+        System.arraycopy(chunks, at + 1, chunks, at, chunkCount - at - 1);
+        chunks[--chunkCount] = null;
+    }
+}
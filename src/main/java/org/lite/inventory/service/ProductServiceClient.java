@@ -0,0 +1,309 @@
+package org.lite.inventory.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.ProductAvailabilityResponse;
+import org.lite.inventory.model.ProductInfo;
+import org.lite.inventory.tracing.Span;
+import org.lite.inventory.tracing.TraceContext;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Product Service lookups through the API gateway, with two ways of cutting downstream calls:
+ * <ul>
+ *     <li>Single flight: concurrent requests for the same product share one in-flight call.</li>
+ *     <li>Micro-batching: lookups for distinct products arriving within a short window are merged into one call
+ *     to the product list endpoint, asking for just those ids with {@code ?ids=}, and the result is split back out
+ *     per product. A Product Service that ignores the parameter returns the full list, which is split the same
+ *     way. Products missing from the list response fall back to their own lookup, so callers see the same result
+ *     as an individual call.</li>
+ * </ul>
+ * The JWT forwarding interceptor on the {@link RestTemplate} sends the caller's token downstream, and the Product
+ * Service may answer differently per caller. Calls are therefore only shared between callers with the same
+ * credential: the caller's JWT, or none for callers without one, such as peers authenticated by certificate.
+ * Each batch runs on a virtual thread under the security context of its first caller, which carries that
+ * credential. Every caller gets its own copy of the response and may modify it. The batched call is traced as part
+ * of the first caller's trace; the other callers' {@code product-lookup} spans show how long they waited for it.
+ * Callers wait at most {@code inventory.product-client.timeout-ms} for a shared call.
+ */
+@Service
+@Slf4j
+public class ProductServiceClient {
+
+    private static final String ALL_PRODUCTS = "*";
+    private static final String PRODUCTS_PATH = "/r/product-service/api/product/products";
+
+    // Calls without a forwarded token can be shared between all such callers
+    private static final String NO_CREDENTIAL = "";
+
+    /**
+     * @param key the single-flight key, made of the credential and the product id
+     */
+    private record PendingLookup(String productId, String key, CompletableFuture<ProductAvailabilityResponse> result,
+                                 SecurityContext securityContext, TraceContext traceContext) {
+    }
+
+    private final RestTemplate restTemplate;
+    private final Tracer tracer;
+    private final Map<String, CompletableFuture<ProductAvailabilityResponse>> inFlight = new ConcurrentHashMap<>();
+    // Lookups waiting to be batched, per credential
+    private final Map<String, List<PendingLookup>> pending = new HashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-lookup-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService callExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong downstreamCalls = new AtomicLong();
+
+    @Value("${gateway.base-url:http://localhost:8080}")
+    private String gatewayBaseUrl;
+
+    @Value("${inventory.product-client.batch-window-ms:5}")
+    private long batchWindowMillis;
+
+    @Value("${inventory.product-client.max-batch-size:50}")
+    private int maxBatchSize;
+
+    @Value("${inventory.product-client.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    public ProductServiceClient(RestTemplate restTemplate, Tracer tracer) {
+        this.restTemplate = restTemplate;
+        this.tracer = tracer;
+    }
+
+    /**
+     * @param productId a product id, or null for all products
+     * @throws RestClientException if the Product Service call failed
+     */
+    public ProductAvailabilityResponse getAvailability(String productId) {
+        lookups.incrementAndGet();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        String credential = credentialOf(securityContext);
+        String key = credential + '\n' + (productId != null ? productId : ALL_PRODUCTS);
+        try (Span span = tracer.startSpan("product-lookup")) {
+            span.setAttribute("product.id", productId != null ? productId : ALL_PRODUCTS);
+            CompletableFuture<ProductAvailabilityResponse> result = new CompletableFuture<>();
+            CompletableFuture<ProductAvailabilityResponse> existing = inFlight.putIfAbsent(key, result);
+            if (existing != null) {
+                span.setAttribute("product.coalesced", true);
+                return copy(await(existing, span));
+            }
+
+            if (productId == null || batchWindowMillis <= 0) {
+                try {
+                    result.complete(fetch(productId));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, result);
+                }
+            } else {
+                enqueue(credential, new PendingLookup(productId, key, result, securityContext, tracer.currentContext()));
+            }
+            return copy(await(result, span));
+        }
+    }
+
+    // The token the JWT forwarding interceptor will send, which is what the downstream response may depend on
+    private static String credentialOf(SecurityContext securityContext) {
+        Authentication authentication = securityContext.getAuthentication();
+        return authentication != null && authentication.getCredentials() instanceof Jwt jwt
+                ? jwt.getTokenValue()
+                : NO_CREDENTIAL;
+    }
+
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    public long getDownstreamCallCount() {
+        return downstreamCalls.get();
+    }
+
+    private void enqueue(String credential, PendingLookup lookup) {
+        synchronized (pending) {
+            List<PendingLookup> lookups = pending.computeIfAbsent(credential, c -> new ArrayList<>());
+            lookups.add(lookup);
+            if (lookups.size() == 1) {
+                scheduler.schedule(() -> flush(credential), batchWindowMillis, TimeUnit.MILLISECONDS);
+            } else if (lookups.size() == maxBatchSize) {
+                scheduler.execute(() -> flush(credential));
+            }
+        }
+    }
+
+    private void flush(String credential) {
+        List<PendingLookup> batch;
+        synchronized (pending) {
+            List<PendingLookup> lookups = pending.get(credential);
+            if (lookups == null) {
+                return;
+            }
+            batch = new ArrayList<>(lookups.subList(0, Math.min(maxBatchSize, lookups.size())));
+            lookups.subList(0, batch.size()).clear();
+            if (lookups.isEmpty()) {
+                pending.remove(credential);
+            } else {
+                scheduler.execute(() -> flush(credential));
+            }
+        }
+        callExecutor.execute(new DelegatingSecurityContextRunnable(() -> execute(batch), batch.get(0).securityContext()));
+    }
+
+    @SuppressWarnings("try") // The scope only needs to be active while the batch runs
+    private void execute(List<PendingLookup> batch) {
+        try (Tracer.Scope scope = tracer.activate(batch.get(0).traceContext());
+             Span span = tracer.startSpan("product-batch")) {
+            span.setAttribute("batch.size", batch.size());
+            executeBatch(batch);
+        }
+    }
+
+    private void executeBatch(List<PendingLookup> batch) {
+        if (batch.size() == 1) {
+            PendingLookup lookup = batch.get(0);
+            try {
+                complete(lookup, fetch(lookup.productId()));
+            } catch (RuntimeException e) {
+                fail(lookup, e);
+            }
+            return;
+        }
+
+        ProductAvailabilityResponse all;
+        try {
+            all = fetchList(batch);
+        } catch (RuntimeException e) {
+            batch.forEach(lookup -> fail(lookup, e));
+            return;
+        }
+        Map<String, ProductInfo> byId = new HashMap<>();
+        if (all != null && all.getProducts() != null) {
+            all.getProducts().forEach(product -> byId.put(product.getId(), product));
+        }
+        log.debug("Resolved {} product lookups with one list call", batch.size());
+        for (PendingLookup lookup : batch) {
+            ProductInfo product = byId.get(lookup.productId());
+            if (product != null) {
+                complete(lookup, new ProductAvailabilityResponse(List.of(product), all.getTimestamp(),
+                        all.getServiceSource(), all.getProductStatus()));
+                continue;
+            }
+            try {
+                complete(lookup, fetch(lookup.productId()));
+            } catch (RuntimeException e) {
+                fail(lookup, e);
+            }
+        }
+    }
+
+    private ProductAvailabilityResponse fetchList(List<PendingLookup> batch) {
+        StringBuilder url = new StringBuilder(gatewayBaseUrl).append(PRODUCTS_PATH).append("?ids=");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                url.append(',');
+            }
+            url.append(UriUtils.encodeQueryParam(batch.get(i).productId(), StandardCharsets.UTF_8));
+        }
+        downstreamCalls.incrementAndGet();
+        // Already encoded, so passed as a URI to keep RestTemplate from encoding it again
+        return restTemplate.getForObject(URI.create(url.toString()), ProductAvailabilityResponse.class);
+    }
+
+    private ProductAvailabilityResponse fetch(String productId) {
+        String url = gatewayBaseUrl + PRODUCTS_PATH;
+        if (productId != null) {
+            url += "/" + productId;
+        }
+        downstreamCalls.incrementAndGet();
+        return restTemplate.getForObject(url, ProductAvailabilityResponse.class);
+    }
+
+    private void complete(PendingLookup lookup, ProductAvailabilityResponse response) {
+        inFlight.remove(lookup.key(), lookup.result());
+        lookup.result().complete(response);
+    }
+
+    private void fail(PendingLookup lookup, RuntimeException e) {
+        inFlight.remove(lookup.key(), lookup.result());
+        lookup.result().completeExceptionally(e);
+    }
+
+    /**
+     * Waits for a shared call. A timeout only gives up this caller's wait; the call itself keeps running for the
+     * other callers sharing it and is bounded by the RestTemplate's own timeouts.
+     */
+    private ProductAvailabilityResponse await(CompletableFuture<ProductAvailabilityResponse> result, Span span) {
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            span.recordError(e.getCause());
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ResourceAccessException("Product Service call failed: " + e.getCause());
+        } catch (TimeoutException e) {
+            span.recordError(e);
+            throw new ResourceAccessException("No response from Product Service within " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            span.recordError(e);
+            throw new ResourceAccessException("Interrupted while waiting for Product Service");
+        }
+    }
+
+    private static ProductAvailabilityResponse copy(ProductAvailabilityResponse response) {
+        if (response == null) {
+            return null;
+        }
+        List<ProductInfo> products = null;
+        if (response.getProducts() != null) {
+            products = new ArrayList<>(response.getProducts().size());
+            for (ProductInfo product : response.getProducts()) {
+                products.add(new ProductInfo(product.getId(), product.getName(), product.getDescription(),
+                        product.getPrice(), product.getCategory(), product.isInStock(),
+                        product.getAvailableQuantity(), product.getEstimatedDelivery(),
+                        product.getWarehouseLocation()));
+            }
+        }
+        return new ProductAvailabilityResponse(products, response.getTimestamp(), response.getServiceSource(),
+                response.getProductStatus());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,80 @@
+package org.lite.inventory.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring mapping item ids to node ids. Each node is placed on the ring at
+ * {@code virtualNodes} pseudo-random points; an id belongs to the node owning the first point at or after the
+ * id's hash. Adding or removing a node therefore only moves the ids adjacent to that node's points, about
+ * 1/n of the keyspace, and every node computing the ring from the same member list agrees on every owner.
+ * <p>
+ * Points are held in a sorted {@code long[]} so a lookup is one binary search with no allocation.
+ */
+public final class ConsistentHashRing {
+
+    private record Point(long hash, String node) {
+    }
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        this.nodes = Set.copyOf(new TreeSet<>(nodes));
+        List<Point> ring = new ArrayList<>(nodes.size() * virtualNodes);
+        for (String node : this.nodes) {
+            long nodeHash = fnv1a(node);
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.add(new Point(mix(nodeHash + i * 0x9E3779B97F4A7C15L), node));
+            }
+        }
+        // Ties on a hash are broken by node id so every member builds the identical ring
+        ring.sort(Comparator.comparingLong(Point::hash).thenComparing(Point::node));
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        for (int i = 0; i < ring.size(); i++) {
+            points[i] = ring.get(i).hash();
+            owners[i] = ring.get(i).node();
+        }
+    }
+
+    public String ownerOf(long id) {
+        int index = Arrays.binarySearch(points, mix(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> nodes() {
+        return nodes;
+    }
+
+    // SplitMix64 finalizer: spreads sequential ids evenly over the ring
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // String.hashCode is only 32 bits and varies little between similar instance ids
+    private static long fnv1a(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+}
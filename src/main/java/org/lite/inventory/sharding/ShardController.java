@@ -0,0 +1,63 @@
+package org.lite.inventory.sharding;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.model.HandoffItem;
+import org.lite.inventory.model.ShardStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Endpoints used by {@link ShardRouter}. The handoff endpoint is called by peers with their mTLS client
+ * certificate; the status endpoint is meant for operators.
+ */
+@Tag(name = "Inventory Sharding", description = "Partitioning of items across inventory-service instances")
+@Slf4j
+@RestController
+@RequestMapping(ShardRouter.SHARD_PATH)
+@ConditionalOnProperty(name = "inventory.sharding.enabled", havingValue = "true")
+public class ShardController {
+
+    private final ShardRouter router;
+
+    public ShardController(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Operation(summary = "Accept handed-off items",
+              description = "Stores items whose ownership moved to this instance after a membership change; "
+                      + "items older than the local copy or tombstone are ignored")
+    @ApiResponse(responseCode = "204", description = "Items stored")
+    @PostMapping(value = "/handoff", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Void> handoff(@RequestBody List<HandoffItem> items) {
+        router.receive(items);
+        log.info("Received {} handed-off items", items.size());
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get shard status",
+              description = "Returns the current members, local item count and forwarding and handoff counters")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200",
+                    description = "Shard status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ShardStatus.class)))
+    })
+    @GetMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ShardStatus> getStatus() {
+        return ResponseEntity.ok(router.status());
+    }
+}
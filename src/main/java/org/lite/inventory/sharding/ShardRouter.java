@@ -0,0 +1,386 @@
+package org.lite.inventory.sharding;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.history.StockHistory;
+import org.lite.inventory.model.HandoffItem;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.ShardStatus;
+import org.lite.inventory.service.IdRanges;
+import org.lite.inventory.service.InventoryChangeListener;
+import org.lite.inventory.service.InventoryStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Partitions the item keyspace across the inventory-service instances registered in Eureka. Every instance
+ * builds the same {@link ConsistentHashRing} from the discovered members and keeps only the items it owns:
+ * <ul>
+ *     <li>Requests for an item owned elsewhere are forwarded by {@link ShardRoutingFilter}.</li>
+ *     <li>New items get ids from this instance's own {@link IdRanges id range} that this instance owns, so
+ *     creates never need forwarding, and ids allocated before a membership change never collide with ids
+ *     allocated after it.</li>
+ *     <li>When members join or leave, each instance hands the items it no longer owns to their new owner. An
+ *     instance shutting down hands all of its items to the remaining members.</li>
+ * </ul>
+ * Every write after startup is stamped with a hybrid logical clock version, and deletes leave versioned
+ * tombstones for {@code tombstone-ttl-ms}. A handed-off copy only replaces the receiver's copy if it is newer,
+ * so a handoff racing with writes forwarded to the new owner never undoes them. An item's {@link StockHistory}
+ * travels with it and is merged into the receiver's, whether or not the receiver keeps the handed-off copy.
+ * <p>
+ * Items loaded at startup that have not been written since are the mock data and the startup catalog, which
+ * every instance loads the same way: an instance not owning them drops them instead of handing them off. With
+ * the journal enabled, startup state may also hold journaled writes, so such items are handed off as well and
+ * the receiver keeps its own copy if it has one.
+ * <p>
+ * Membership is eventually consistent: until every instance has seen a change, a request can be forwarded
+ * to an instance that has not received its items yet. List, search and range endpoints cover the local
+ * shard only.
+ */
+@Service
+@ConditionalOnProperty(name = "inventory.sharding.enabled", havingValue = "true")
+@Slf4j
+public final class ShardRouter implements InventoryChangeListener, ApplicationRunner {
+
+    static final String SHARD_PATH = "/api/inventory/shard";
+
+    private record Version(long clock, String origin, boolean deleted, long recordedAtMillis) {
+        boolean isNewerThan(Version other) {
+            return clock > other.clock || (clock == other.clock && origin.compareTo(other.origin) > 0);
+        }
+    }
+
+    private final InventoryStore store;
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final StockHistory history;
+    private final String nodeId;
+    private final String serviceId;
+    private final int virtualNodes;
+
+    private volatile ConsistentHashRing ring;
+    private volatile Map<String, ServiceInstance> peers = Map.of();
+    private volatile boolean rebalancePending;
+    private volatile boolean started;
+    private volatile boolean ready;
+    private volatile long idRangeStart;
+
+    // Items written or received since startup; an item without an entry is unchanged startup state
+    private final Map<Long, Version> versions = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // Set while the store applies a handoff, so those changes are not stamped as local writes
+    private final ThreadLocal<Boolean> applyingHandoff = ThreadLocal.withInitial(() -> false);
+
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong handedOff = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong staleHandoffItems = new AtomicLong();
+    private final AtomicLong failedHandoffs = new AtomicLong();
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    @Value("${inventory.sharding.handoff-batch-size:1000}")
+    private int handoffBatchSize;
+
+    @Value("${inventory.sharding.tombstone-ttl-ms:3600000}")
+    private long tombstoneTtlMillis;
+
+    @Value("${inventory.journal.enabled:false}")
+    private boolean journalEnabled;
+
+    public ShardRouter(InventoryStore store, DiscoveryClient discoveryClient, RestTemplate restTemplate,
+                       ObjectProvider<Registration> registration, ObjectProvider<StockHistory> history,
+                       @Value("${spring.application.name}") String serviceId,
+                       @Value("${inventory.sharding.virtual-nodes:128}") int virtualNodes,
+                       @Value("${inventory.replication.enabled:false}") boolean replicationEnabled) {
+        if (replicationEnabled) {
+            throw new IllegalStateException("inventory.sharding.enabled and inventory.replication.enabled are mutually exclusive");
+        }
+        this.store = store;
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.history = history.getIfAvailable();
+        this.serviceId = serviceId;
+        this.virtualNodes = virtualNodes;
+        Registration self = registration.getIfAvailable();
+        this.nodeId = self != null ? self.getInstanceId() : UUID.randomUUID().toString();
+        this.ring = new ConsistentHashRing(List.of(nodeId), virtualNodes);
+        store.addListener(this);
+        log.info("Sharding enabled for node {}", nodeId);
+    }
+
+    // Runs after the startup catalog and the journal, so the rows they hold without ids are numbered the same
+    // way on every instance, and nothing is dropped or handed off before they are loaded
+    @Override
+    public void run(ApplicationArguments args) {
+        started = true;
+        refresh();
+        int tag = IdRanges.tagAvoiding(nodeId, peers.keySet());
+        idRangeStart = IdRanges.start(tag);
+        store.setIdRange(IdRanges.start(tag), IdRanges.end(tag));
+        store.setIdFilter(this::isLocal);
+        log.info("Allocating ids from {}", idRangeStart);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        ready = true;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isLocal(long id) {
+        return nodeId.equals(ring.ownerOf(id));
+    }
+
+    /**
+     * The instance owning the item, or empty if it is owned locally or its owner is not known yet.
+     */
+    public Optional<ServiceInstance> remoteOwnerOf(long id) {
+        String owner = ring.ownerOf(id);
+        return nodeId.equals(owner) ? Optional.empty() : Optional.ofNullable(peers.get(owner));
+    }
+
+    public String urlOf(ServiceInstance instance, String path) {
+        return instance.getUri() + contextPath + path;
+    }
+
+    public void recordForward() {
+        forwarded.incrementAndGet();
+    }
+
+    // --- local writes ---
+
+    @Override
+    public void onPut(InventoryItem previous, InventoryItem current) {
+        if (ready && !applyingHandoff.get()) {
+            versions.put(current.getId(), new Version(nextClock(), nodeId, false, System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    public void onRemove(InventoryItem removed) {
+        if (applyingHandoff.get()) {
+            // Handed off or dropped: the item is no longer ours, and it may come back with any version
+            versions.remove(removed.getId());
+        } else if (ready) {
+            versions.put(removed.getId(), new Version(nextClock(), nodeId, true, System.currentTimeMillis()));
+        }
+    }
+
+    @Override
+    public void onReload(Collection<InventoryItem> items) {
+        if (!ready || applyingHandoff.get()) {
+            return;
+        }
+        // A bulk import after startup is a write to every item it loaded
+        long now = System.currentTimeMillis();
+        for (InventoryItem item : items) {
+            versions.put(item.getId(), new Version(nextClock(), nodeId, false, now));
+        }
+    }
+
+    private long nextClock() {
+        long physical = System.currentTimeMillis() << 16;
+        return clock.updateAndGet(last -> Math.max(last + 1, physical));
+    }
+
+    /**
+     * Stores items handed off by their previous owner, unless the local copy or tombstone is newer. An item
+     * handed off without a version, unchanged since its sender started, never replaces a local copy.
+     */
+    public void receive(List<HandoffItem> items) {
+        long now = System.currentTimeMillis();
+        store.runExclusively(() -> {
+            applyingHandoff.set(true);
+            try {
+                for (HandoffItem handoff : items) {
+                    long id = handoff.getItem().getId();
+                    clock.accumulateAndGet(handoff.getVersion(), Math::max);
+                    Version incoming = new Version(handoff.getVersion(),
+                            handoff.getOrigin() != null ? handoff.getOrigin() : "", false, now);
+                    Version local = versions.get(id);
+                    boolean newer = local != null
+                            ? incoming.isNewerThan(local)
+                            : handoff.getVersion() > 0 || !store.exists(id);
+                    if (newer) {
+                        store.put(handoff.getItem());
+                        versions.put(id, incoming);
+                    } else {
+                        staleHandoffItems.incrementAndGet();
+                    }
+                    if (history != null && handoff.getHistory() != null) {
+                        history.merge(id, handoff.getHistory());
+                    }
+                }
+            } finally {
+                applyingHandoff.set(false);
+            }
+        });
+        received.addAndGet(items.size());
+    }
+
+    public ShardStatus status() {
+        ShardStatus status = new ShardStatus();
+        status.setNodeId(nodeId);
+        status.setNodes(ring.nodes().stream().sorted().toList());
+        status.setIdRangeStart(idRangeStart);
+        status.setLocalItems(store.size());
+        status.setForwardedRequests(forwarded.get());
+        status.setHandedOffItems(handedOff.get());
+        status.setReceivedItems(received.get());
+        status.setStaleHandoffItems(staleHandoffItems.get());
+        status.setFailedHandoffs(failedHandoffs.get());
+        return status;
+    }
+
+    // --- membership ---
+
+    @Scheduled(fixedDelayString = "${inventory.sharding.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!started) {
+            return; // The startup catalog and journal may still be loading
+        }
+        long expiry = System.currentTimeMillis() - tombstoneTtlMillis;
+        versions.entrySet().removeIf(entry -> entry.getValue().deleted() && entry.getValue().recordedAtMillis() < expiry);
+
+        Map<String, ServiceInstance> discovered = new HashMap<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+            if (!nodeId.equals(instance.getInstanceId())) {
+                discovered.put(instance.getInstanceId(), instance);
+            }
+        }
+        peers = discovered;
+        boolean unchanged = discovered.size() + 1 == ring.nodes().size() && ring.nodes().containsAll(discovered.keySet());
+        if (!unchanged) {
+            List<String> members = new ArrayList<>(discovered.keySet());
+            members.add(nodeId);
+            ring = new ConsistentHashRing(members, virtualNodes);
+            log.info("Shard membership changed, now {} nodes: {}", members.size(), ring.nodes());
+        }
+        if (!unchanged || rebalancePending) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Hands every local item that this instance no longer owns to its owner, and drops unchanged startup items
+     * that the owner loaded itself. An item is only removed locally once its owner accepted it, and only if it
+     * was not changed in the meantime; anything left behind is retried on the next refresh.
+     */
+    public void rebalance() {
+        rebalancePending = false;
+        ConsistentHashRing current = ring;
+        Map<String, ServiceInstance> members = peers;
+        List<InventoryItem> startupItems = new ArrayList<>();
+        Map<String, List<InventoryItem>> moves = new HashMap<>();
+        for (InventoryItem item : store.values()) {
+            String owner = current.ownerOf(item.getId());
+            if (nodeId.equals(owner) || !members.containsKey(owner)) {
+                continue;
+            }
+            if (!journalEnabled && !versions.containsKey(item.getId())) {
+                startupItems.add(item);
+            } else {
+                moves.computeIfAbsent(owner, key -> new ArrayList<>()).add(item);
+            }
+        }
+        if (!startupItems.isEmpty()) {
+            removeUnchanged(startupItems);
+            log.info("Dropped {} startup items owned by other instances", startupItems.size());
+        }
+        handOff(moves, members);
+    }
+
+    /**
+     * Hands every item to the remaining members before this instance leaves, so that no item, including those
+     * loaded at startup that the other members dropped, is lost with it.
+     */
+    @PreDestroy
+    public void drain() {
+        Map<String, ServiceInstance> members = peers;
+        if (members.isEmpty()) {
+            return;
+        }
+        ConsistentHashRing remaining = new ConsistentHashRing(members.keySet(), virtualNodes);
+        Map<String, List<InventoryItem>> moves = new HashMap<>();
+        for (InventoryItem item : store.values()) {
+            moves.computeIfAbsent(remaining.ownerOf(item.getId()), key -> new ArrayList<>()).add(item);
+        }
+        log.info("Handing {} items to the remaining {} instances before shutdown", store.size(), members.size());
+        handOff(moves, members);
+    }
+
+    private void handOff(Map<String, List<InventoryItem>> moves, Map<String, ServiceInstance> members) {
+        moves.forEach((owner, items) -> {
+            for (int from = 0; from < items.size(); from += handoffBatchSize) {
+                List<InventoryItem> batch = items.subList(from, Math.min(items.size(), from + handoffBatchSize));
+                List<HandoffItem> payload = new ArrayList<>(batch.size());
+                for (InventoryItem item : batch) {
+                    Version version = versions.get(item.getId());
+                    payload.add(new HandoffItem(item, version != null ? version.clock() : 0,
+                            version != null ? version.origin() : "",
+                            history != null ? history.export(item.getId()) : null));
+                }
+                try {
+                    restTemplate.postForLocation(urlOf(members.get(owner), SHARD_PATH + "/handoff"), payload);
+                } catch (RestClientException e) {
+                    failedHandoffs.incrementAndGet();
+                    rebalancePending = true;
+                    log.warn("Could not hand off {} items to {}: {}", batch.size(), owner, e.getMessage());
+                    return;
+                }
+                removeUnchanged(batch);
+                handedOff.addAndGet(batch.size());
+            }
+            log.info("Handed off {} items to {}", items.size(), owner);
+        });
+    }
+
+    // Removes the items that are still stored as given, with their history, which the owner holds now or kept
+    // itself for unchanged startup items; a changed item is retried on the next refresh
+    private void removeUnchanged(List<InventoryItem> items) {
+        store.runExclusively(() -> {
+            applyingHandoff.set(true);
+            try {
+                for (InventoryItem item : items) {
+                    if (store.findById(item.getId()).orElse(null) == item) {
+                        store.delete(item.getId());
+                        if (history != null) {
+                            history.drop(item.getId());
+                        }
+                    } else {
+                        rebalancePending = true;
+                    }
+                }
+            } finally {
+                applyingHandoff.set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package org.lite.inventory.sharding;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.lite.inventory.config.TrustedPeerCertificates;
+import org.lite.inventory.error.ErrorTemplate;
+import org.lite.inventory.filter.RequestBodies;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Forwards single-item requests ({@code /api/inventory/{id}} and its subpaths such as {@code /{id}/history}) to
+ * the instance owning the item and relays its response. Runs after authentication and role validation, so the
+ * caller's JWT is in the security context and the {@link RestTemplate} interceptor forwards it; the call itself
+ * goes over mTLS. End-to-end headers are passed on in both directions; hop-by-hop headers are not.
+ * <p>
+ * Forwarded requests are marked with {@value #FORWARDED_HEADER} and always served where they arrive, so a
+ * request is forwarded at most once even while two instances disagree about membership. The mark only counts on
+ * requests made with a trusted peer's client certificate; clients cannot use it to write to an instance that does
+ * not own the item. Bodies over {@code max-request-bytes} are refused with 413 rather than buffered.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.sharding.enabled", havingValue = "true")
+@Order(Ordered.LOWEST_PRECEDENCE - 100) // Before idempotency, so retries of item requests meet on the owner
+@Slf4j
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    static final String FORWARDED_HEADER = "X-Inventory-Forwarded-By";
+
+    private static final String ITEM_PATH = "/api/inventory/";
+    private static final Set<String> FORWARDED_METHODS = Set.of("GET", "HEAD", "PUT", "PATCH", "DELETE", "OPTIONS");
+    // Lower case. Besides the hop-by-hop headers proper, the length and encoding are left to the HTTP client and
+    // the container, since bodies are relayed as decoded text, and the credentials to the RestTemplate interceptor.
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length",
+            "accept-encoding", "content-encoding");
+    private static final Set<String> CREDENTIAL_HEADERS = Set.of("authorization", "x-user-token");
+    private static final ErrorTemplate OWNER_UNAVAILABLE = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE,
+            "SHARD_OWNER_UNAVAILABLE", "Unable to reach the instance owning item ", "");
+    private static final ErrorTemplate BODY_TOO_LARGE = ErrorTemplate.of(HttpStatus.PAYLOAD_TOO_LARGE,
+            "PAYLOAD_TOO_LARGE", "Request body is too large to forward", "");
+
+    private final ShardRouter router;
+    private final RestTemplate restTemplate;
+    private final TrustedPeerCertificates trustedPeers;
+
+    @Value("${inventory.sharding.max-request-bytes:1048576}")
+    private int maxRequestBytes;
+
+    public ShardRoutingFilter(ShardRouter router, RestTemplate restTemplate, TrustedPeerCertificates trustedPeers) {
+        this.router = router;
+        this.restTemplate = restTemplate;
+        this.trustedPeers = trustedPeers;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long id = itemId(request);
+        Optional<ServiceInstance> owner = id < 0 ? Optional.empty() : router.remoteOwnerOf(id);
+        if (owner.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String url = router.urlOf(owner.get(), path)
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        HttpHeaders headers = new HttpHeaders();
+        Set<String> connectionHeaders = connectionHeaders(request.getHeader(HttpHeaders.CONNECTION));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+            if (!isHopByHop(lowerCase, connectionHeaders) && !CREDENTIAL_HEADERS.contains(lowerCase)) {
+                headers.addAll(name, Collections.list(request.getHeaders(name)));
+            }
+        }
+        headers.set(FORWARDED_HEADER, router.getNodeId());
+        byte[] body = RequestBodies.read(request, maxRequestBytes);
+        if (body == null) {
+            response.setStatus(BODY_TOO_LARGE.getStatus().value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(BODY_TOO_LARGE.render(null, path));
+            return;
+        }
+        router.recordForward();
+        try {
+            ResponseEntity<String> forwarded = restTemplate.exchange(url, HttpMethod.valueOf(request.getMethod()),
+                    new HttpEntity<>(body.length > 0 ? new String(body, StandardCharsets.UTF_8) : null, headers),
+                    String.class);
+            relay(response, forwarded.getStatusCode().value(), forwarded.getHeaders(), forwarded.getBody());
+        } catch (HttpStatusCodeException e) {
+            relay(response, e.getStatusCode().value(), e.getResponseHeaders(), e.getResponseBodyAsString());
+        } catch (RestClientException e) {
+            log.warn("Could not forward {} {} to owner {}: {}", request.getMethod(), path,
+                    owner.get().getInstanceId(), e.getMessage());
+            response.setStatus(OWNER_UNAVAILABLE.getStatus().value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(OWNER_UNAVAILABLE.render(String.valueOf(id), path));
+        }
+    }
+
+    // The item id for forwardable requests to an item or one of its subpaths, otherwise -1
+    private long itemId(HttpServletRequest request) {
+        if (!FORWARDED_METHODS.contains(request.getMethod())
+                || request.getHeader(FORWARDED_HEADER) != null && trustedPeers.isTrustedPeer(request)) {
+            return -1;
+        }
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + ITEM_PATH.length();
+        if (uri.length() <= start || !uri.startsWith(ITEM_PATH, request.getContextPath().length())) {
+            return -1;
+        }
+        int end = uri.indexOf('/', start);
+        if (end < 0) {
+            end = uri.length();
+        }
+        if (end == start || end - start > 18) {
+            return -1;
+        }
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(uri.charAt(i))) {
+                return -1;
+            }
+        }
+        return Long.parseLong(uri, start, end, 10);
+    }
+
+    private static void relay(HttpServletResponse response, int status, HttpHeaders headers, String body) throws IOException {
+        response.setStatus(status);
+        if (headers != null) {
+            Set<String> connectionHeaders = connectionHeaders(headers.getFirst(HttpHeaders.CONNECTION));
+            headers.forEach((name, values) -> {
+                if (!values.isEmpty() && !isHopByHop(name.toLowerCase(Locale.ROOT), connectionHeaders)) {
+                    // Replaces any value set here, such as the security headers, with the owner's
+                    response.setHeader(name, values.get(0));
+                    values.subList(1, values.size()).forEach(value -> response.addHeader(name, value));
+                }
+            });
+        }
+        if (body != null && !body.isEmpty()) {
+            response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Headers named in a Connection header are hop-by-hop as well
+    private static Set<String> connectionHeaders(String connection) {
+        if (connection == null) {
+            return Set.of();
+        }
+        Set<String> names = new HashSet<>();
+        for (String name : connection.split(",")) {
+            names.add(name.trim().toLowerCase(Locale.ROOT));
+        }
+        return names;
+    }
+
+    private static boolean isHopByHop(String lowerCaseName, Set<String> connectionHeaders) {
+        return HOP_BY_HOP_HEADERS.contains(lowerCaseName) || connectionHeaders.contains(lowerCaseName);
+    }
+}
@@ -0,0 +1,50 @@
+package org.lite.inventory.tracing;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records a span around each controller method, named like {@code InventoryController.getItemById}, as a child
+ * of the request's server span. It separates the time spent in the controller from the time spent in
+ * filters, security and message conversion.
+ */
+class HandlerSpanInterceptor implements HandlerInterceptor {
+
+    private static final String SPAN_ATTRIBUTE = HandlerSpanInterceptor.class.getName() + ".span";
+
+    private final Tracer tracer;
+    private final ConcurrentHashMap<Method, String> spanNames = new ConcurrentHashMap<>();
+
+    HandlerSpanInterceptor(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (tracer.isSampled() && handler instanceof HandlerMethod handlerMethod) {
+            String name = spanNames.computeIfAbsent(handlerMethod.getMethod(),
+                    method -> handlerMethod.getBeanType().getSimpleName() + "." + method.getName());
+            request.setAttribute(SPAN_ATTRIBUTE, tracer.startSpan(name));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (request.getAttribute(SPAN_ATTRIBUTE) instanceof Span span) {
+            request.removeAttribute(SPAN_ATTRIBUTE);
+            if (ex != null) {
+                span.recordError(ex);
+            }
+            span.close();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.lite.inventory.tracing;
+
+import java.util.Arrays;
+
+/**
+ * A timed operation within a trace, started by {@link Tracer} and ended by {@link #close()}, which makes it fit a
+ * try-with-resources block. While open, a span is the current span of its thread, so spans started meanwhile
+ * become its children and outgoing calls carry its context.
+ * <p>
+ * Spans of traces that are not sampled record nothing: setters return immediately and nothing is exported.
+ */
+public final class Span implements AutoCloseable {
+
+    public enum Kind {
+        SERVER,
+        CLIENT,
+        INTERNAL
+    }
+
+    // Returned for spans of unsampled traces; does not touch the current context
+    static final Span NOOP = new Span(null, null, 0, null, Kind.INTERNAL, null, 0);
+
+    private final Tracer tracer;
+    private final TraceContext context;
+    private final long parentSpanId;
+    private final Kind kind;
+    private final TraceContext previous;
+    private final long startEpochNanos;
+    private String name;
+    private long endEpochNanos;
+    private Object[] attributes; // Alternating keys and values
+    private int attributeCount;
+    private String errorMessage;
+    private boolean ended;
+
+    Span(Tracer tracer, TraceContext context, long parentSpanId, String name, Kind kind, TraceContext previous,
+         long startEpochNanos) {
+        this.tracer = tracer;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.previous = previous;
+        this.startEpochNanos = startEpochNanos;
+    }
+
+    /**
+     * @return whether this span is sampled, in which case it is exported when it ends
+     */
+    public boolean isRecording() {
+        return context != null && context.sampled();
+    }
+
+    public Span updateName(String name) {
+        if (isRecording()) {
+            this.name = name;
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, String value) {
+        if (isRecording() && value != null) {
+            addAttribute(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, long value) {
+        if (isRecording()) {
+            addAttribute(key, value);
+        }
+        return this;
+    }
+
+    public Span setAttribute(String key, boolean value) {
+        if (isRecording()) {
+            addAttribute(key, value);
+        }
+        return this;
+    }
+
+    public Span setError(String message) {
+        if (isRecording()) {
+            this.errorMessage = message != null ? message : "";
+        }
+        return this;
+    }
+
+    public Span recordError(Throwable error) {
+        if (isRecording()) {
+            setError(error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (this == NOOP || ended) {
+            return;
+        }
+        ended = true;
+        tracer.end(this);
+    }
+
+    private void addAttribute(String key, Object value) {
+        if (attributes == null) {
+            attributes = new Object[8];
+        } else if (attributeCount * 2 == attributes.length) {
+            attributes = Arrays.copyOf(attributes, attributes.length * 2);
+        }
+        attributes[attributeCount * 2] = key;
+        attributes[attributeCount * 2 + 1] = value;
+        attributeCount++;
+    }
+
+    // --- read by the tracer and the exporter ---
+
+    TraceContext context() {
+        return context;
+    }
+
+    TraceContext previous() {
+        return previous;
+    }
+
+    long parentSpanId() {
+        return parentSpanId;
+    }
+
+    String name() {
+        return name;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    long startEpochNanos() {
+        return startEpochNanos;
+    }
+
+    long endEpochNanos() {
+        return endEpochNanos;
+    }
+
+    void setEndEpochNanos(long endEpochNanos) {
+        this.endEpochNanos = endEpochNanos;
+    }
+
+    int attributeCount() {
+        return attributeCount;
+    }
+
+    String attributeKey(int index) {
+        return (String) attributes[index * 2];
+    }
+
+    Object attributeValue(int index) {
+        return attributes[index * 2 + 1];
+    }
+
+    String errorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,188 @@
+package org.lite.inventory.tracing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes ended spans to a local file, one JSON object per line, for offline analysis. Field names follow the
+ * OpenTelemetry span model ({@code traceId}, {@code spanId}, {@code parentSpanId}, {@code startTimeUnixNano},
+ * ...), with ids as lowercase hex, so traces can be grouped with jq or converted for a tracing UI.
+ * <p>
+ * Requests only enqueue their spans; a writer thread serializes and writes them in batches. Spans arriving while
+ * the queue is full are dropped and counted rather than slowing requests down. Once the file exceeds
+ * {@code max-file-bytes} it is renamed with a {@code .1} suffix, replacing the previous one, and a new file is
+ * started.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.tracing.enabled", havingValue = "true")
+@Slf4j
+public class SpanFileExporter {
+
+    private static final int MAX_BATCH_SIZE = 4096;
+
+    private final BlockingQueue<Span> queue;
+    private final Path file;
+    private final long maxFileBytes;
+    private final String serviceName;
+    private final JsonFactory jsonFactory;
+    private final Thread writer;
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread
+    private FileOutputStream output;
+
+    public SpanFileExporter(@Value("${inventory.tracing.file:logs/traces.ndjson}") String file,
+                            @Value("${inventory.tracing.queue-capacity:65536}") int queueCapacity,
+                            @Value("${inventory.tracing.max-file-bytes:104857600}") long maxFileBytes,
+                            @Value("${spring.application.name}") String serviceName,
+                            ObjectMapper objectMapper) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.file = Path.of(file);
+        this.maxFileBytes = maxFileBytes;
+        this.serviceName = serviceName;
+        this.jsonFactory = objectMapper.getFactory();
+        this.writer = new Thread(this::drain, "span-file-exporter");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Exporting trace spans to {}", this.file.toAbsolutePath());
+    }
+
+    void export(Span span) {
+        if (!queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getExportedCount() {
+        return exported.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        List<Span> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Span first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                write(batch);
+                exported.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                dropped.addAndGet(batch.size());
+                log.warn("Could not write {} spans to {}: {}", batch.size(), file, e.getMessage());
+                closeQuietly();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeQuietly();
+    }
+
+    private void write(List<Span> batch) throws IOException {
+        if (output == null) {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            output = new FileOutputStream(file.toFile(), true);
+        }
+        OutputStream buffered = new BufferedOutputStream(output, 1 << 16);
+        try (JsonGenerator json = jsonFactory.createGenerator(buffered)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null); // Lines are separated explicitly
+            for (Span span : batch) {
+                writeSpan(json, span);
+                json.writeRaw('\n');
+            }
+        }
+        buffered.flush();
+        if (output.getChannel().size() > maxFileBytes) {
+            output.close();
+            output = null;
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeSpan(JsonGenerator json, Span span) throws IOException {
+        TraceContext context = span.context();
+        json.writeStartObject();
+        json.writeStringField("traceId", context.traceId());
+        json.writeStringField("spanId", context.spanIdHex());
+        if (span.parentSpanId() != 0) {
+            json.writeStringField("parentSpanId", TraceContext.hex(span.parentSpanId()));
+        }
+        json.writeStringField("name", span.name());
+        json.writeStringField("kind", span.kind().name());
+        json.writeNumberField("startTimeUnixNano", span.startEpochNanos());
+        json.writeNumberField("endTimeUnixNano", span.endEpochNanos());
+        json.writeNumberField("durationMicros", (span.endEpochNanos() - span.startEpochNanos()) / 1000);
+        json.writeStringField("service", serviceName);
+        if (span.attributeCount() > 0) {
+            json.writeObjectFieldStart("attributes");
+            for (int i = 0; i < span.attributeCount(); i++) {
+                Object value = span.attributeValue(i);
+                if (value instanceof Long number) {
+                    json.writeNumberField(span.attributeKey(i), number);
+                } else if (value instanceof Boolean flag) {
+                    json.writeBooleanField(span.attributeKey(i), flag);
+                } else {
+                    json.writeStringField(span.attributeKey(i), String.valueOf(value));
+                }
+            }
+            json.writeEndObject();
+        }
+        json.writeStringField("status", span.errorMessage() != null ? "ERROR" : "OK");
+        if (span.errorMessage() != null) {
+            json.writeStringField("statusMessage", span.errorMessage());
+        }
+        json.writeEndObject();
+    }
+
+    private void closeQuietly() {
+        if (output != null) {
+            try {
+                output.close();
+            } catch (IOException e) {
+                log.debug("Could not close {}: {}", file, e.getMessage());
+            }
+            output = null;
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
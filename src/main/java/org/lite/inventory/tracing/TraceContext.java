@@ -0,0 +1,86 @@
+package org.lite.inventory.tracing;
+
+/**
+ * Identifies a span within a trace, as carried between services by the W3C {@code traceparent} header:
+ * {@code 00-<32 hex digits trace id>-<16 hex digits span id>-<2 hex digits flags>}.
+ */
+public record TraceContext(long traceIdHigh, long traceIdLow, long spanId, boolean sampled) {
+
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public String traceId() {
+        char[] chars = new char[32];
+        writeHex(chars, 0, traceIdHigh);
+        writeHex(chars, 16, traceIdLow);
+        return new String(chars);
+    }
+
+    public String spanIdHex() {
+        return hex(spanId);
+    }
+
+    public String toTraceparent() {
+        char[] chars = new char[TRACEPARENT_LENGTH];
+        chars[0] = '0';
+        chars[1] = '0';
+        chars[2] = '-';
+        writeHex(chars, 3, traceIdHigh);
+        writeHex(chars, 19, traceIdLow);
+        chars[35] = '-';
+        writeHex(chars, 36, spanId);
+        chars[52] = '-';
+        chars[53] = '0';
+        chars[54] = sampled ? '1' : '0';
+        return new String(chars);
+    }
+
+    /**
+     * @return the context of the calling span, or null if the header is absent or not a valid version 00 header
+     */
+    public static TraceContext parse(String traceparent) {
+        if (traceparent == null || traceparent.length() != TRACEPARENT_LENGTH || !traceparent.startsWith("00-")
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        try {
+            long traceIdHigh = parseHex(traceparent, 3);
+            long traceIdLow = parseHex(traceparent, 19);
+            long spanId = parseHex(traceparent, 36);
+            int flags = Character.digit(traceparent.charAt(53), 16) << 4 | Character.digit(traceparent.charAt(54), 16);
+            if ((traceIdHigh == 0 && traceIdLow == 0) || spanId == 0 || flags < 0) {
+                return null;
+            }
+            return new TraceContext(traceIdHigh, traceIdLow, spanId, (flags & 1) != 0);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String hex(long value) {
+        char[] chars = new char[16];
+        writeHex(chars, 0, value);
+        return new String(chars);
+    }
+
+    private static void writeHex(char[] chars, int offset, long value) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    private static long parseHex(String text, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 16; i++) {
+            int digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0 || Character.isUpperCase(text.charAt(i))) {
+                throw new NumberFormatException("Not a lowercase hex digit: " + text.charAt(i));
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+}
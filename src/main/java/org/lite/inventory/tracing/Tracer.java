@@ -0,0 +1,151 @@
+package org.lite.inventory.tracing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Starts {@link Span}s and tracks the current span of each thread.
+ * <p>
+ * Sampling is decided once per trace, where the trace starts: an incoming request with a valid
+ * {@code traceparent} header follows the caller's decision, any other trace is sampled with probability
+ * {@code sample-rate}, derived from its trace id. Traces only start at incoming requests, and only sampled traces
+ * record anything. An unsampled request
+ * still has a current context, so that the decision is passed on to the services it calls.
+ * <p>
+ * Tracing is off unless {@code inventory.tracing.enabled} is set; until then every span is a no-op and nothing
+ * is exported.
+ */
+@Component
+@Slf4j
+public class Tracer {
+
+    /**
+     * Restores the previous current context when closed.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Scope NOOP_SCOPE = () -> { };
+
+    private final ThreadLocal<TraceContext> current = new ThreadLocal<>();
+    private final SpanFileExporter exporter;
+    private final long sampleThreshold;
+    // Epoch timestamps from the monotonic clock, which is cheaper to read than the wall clock at this precision
+    private final long epochOffsetNanos = System.currentTimeMillis() * 1_000_000 - System.nanoTime();
+
+    public Tracer(ObjectProvider<SpanFileExporter> exporter,
+                  @Value("${inventory.tracing.sample-rate:0.1}") double sampleRate) {
+        this.exporter = exporter.getIfAvailable();
+        double rate = Math.max(0, Math.min(1, sampleRate));
+        this.sampleThreshold = rate >= 1 ? Long.MAX_VALUE : (long) (rate * Long.MAX_VALUE);
+        if (this.exporter != null) {
+            log.info("Tracing enabled, sampling {}% of new traces", rate * 100);
+        }
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * @return the context of the current span, or null outside any trace
+     */
+    public TraceContext currentContext() {
+        return exporter != null ? current.get() : null;
+    }
+
+    /**
+     * @return whether the current trace is sampled, so callers can skip preparing span names and attributes
+     */
+    public boolean isSampled() {
+        TraceContext context = currentContext();
+        return context != null && context.sampled();
+    }
+
+    /**
+     * Starts the span of an incoming request and makes it current, continuing the caller's trace if
+     * {@code traceparent} is a valid header. Unlike other spans, it becomes current even when not sampled.
+     */
+    public Span startServerSpan(String name, String traceparent) {
+        if (exporter == null) {
+            return Span.NOOP;
+        }
+        TraceContext parent = TraceContext.parse(traceparent);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        TraceContext context = parent != null
+                ? new TraceContext(parent.traceIdHigh(), parent.traceIdLow(), nextSpanId(random), parent.sampled())
+                : newTrace(random);
+        return begin(context, parent != null ? parent.spanId() : 0, name, Span.Kind.SERVER);
+    }
+
+    public Span startSpan(String name) {
+        return startSpan(name, Span.Kind.INTERNAL);
+    }
+
+    /**
+     * Starts a span as a child of the current span and makes it current. Returns a no-op span if there is no
+     * current span or its trace is not sampled, so background work such as replication or compaction is only
+     * traced when it runs on behalf of a traced request.
+     */
+    public Span startSpan(String name, Span.Kind kind) {
+        if (exporter == null) {
+            return Span.NOOP;
+        }
+        TraceContext parent = current.get();
+        if (parent == null || !parent.sampled()) {
+            return Span.NOOP;
+        }
+        TraceContext context = new TraceContext(parent.traceIdHigh(), parent.traceIdLow(),
+                nextSpanId(ThreadLocalRandom.current()), true);
+        return begin(context, parent.spanId(), name, kind);
+    }
+
+    /**
+     * Makes a context current until the returned scope is closed, to continue a trace on another thread.
+     */
+    public Scope activate(TraceContext context) {
+        if (exporter == null || context == null) {
+            return NOOP_SCOPE;
+        }
+        TraceContext previous = current.get();
+        current.set(context);
+        return () -> current.set(previous);
+    }
+
+    void end(Span span) {
+        span.setEndEpochNanos(nowEpochNanos());
+        current.set(span.previous());
+        if (span.isRecording()) {
+            exporter.export(span);
+        }
+    }
+
+    private Span begin(TraceContext context, long parentSpanId, String name, Span.Kind kind) {
+        Span span = new Span(this, context, parentSpanId, name, kind, current.get(), nowEpochNanos());
+        current.set(context);
+        return span;
+    }
+
+    private TraceContext newTrace(ThreadLocalRandom random) {
+        long traceIdHigh = random.nextLong();
+        long traceIdLow = random.nextLong();
+        // Decided from the trace id, like OpenTelemetry's ratio sampler
+        boolean sampled = (traceIdLow & Long.MAX_VALUE) < sampleThreshold || sampleThreshold == Long.MAX_VALUE;
+        return new TraceContext(traceIdHigh, traceIdLow == 0 ? 1 : traceIdLow, nextSpanId(random), sampled);
+    }
+
+    private static long nextSpanId(ThreadLocalRandom random) {
+        long spanId = random.nextLong();
+        return spanId != 0 ? spanId : 1;
+    }
+
+    private long nowEpochNanos() {
+        return epochOffsetNanos + System.nanoTime();
+    }
+}
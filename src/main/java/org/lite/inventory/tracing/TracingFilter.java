@@ -0,0 +1,65 @@
+package org.lite.inventory.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.lite.inventory.controller.HealthController;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Opens the server span of every request, continuing the caller's trace when it sent a {@code traceparent}
+ * header. The span is named after the matched route, such as {@code GET /api/inventory/{id}}, so that spans of
+ * one endpoint group together.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.tracing.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 1) // Right after load shedding, so the span includes authentication
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return HealthController.isHealthCheck(request);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Span span = tracer.startServerSpan(request.getMethod(), request.getHeader(TraceContext.TRACEPARENT_HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.recordError(e);
+            throw e;
+        } finally {
+            if (span.isRecording()) {
+                Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                int status = response.getStatus();
+                span.updateName(route != null ? request.getMethod() + " " + route : request.getMethod())
+                        .setAttribute("http.request.method", request.getMethod())
+                        .setAttribute("url.path", request.getRequestURI())
+                        .setAttribute("http.route", route != null ? route.toString() : null)
+                        .setAttribute("http.response.status_code", status);
+                if (status >= 500) {
+                    span.setError("HTTP " + status);
+                }
+            }
+            span.close();
+        }
+    }
+}
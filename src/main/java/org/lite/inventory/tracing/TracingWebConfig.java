@@ -0,0 +1,22 @@
+package org.lite.inventory.tracing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "inventory.tracing.enabled", havingValue = "true")
+public class TracingWebConfig implements WebMvcConfigurer {
+
+    private final Tracer tracer;
+
+    public TracingWebConfig(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerSpanInterceptor(tracer));
+    }
+}
@@ -0,0 +1,62 @@
+package org.lite.inventory.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitFilterTest {
+
+    private static final String CONTEXT_PATH = "/r/inventory-service";
+
+    @Test
+    void onlyTheHealthEndpointBypassesAFullLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 2.0, 100, 60_000);
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(limiter, Jackson2ObjectMapperBuilder.json().build());
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        assertThat(send(filter, "/health").getStatus()).isEqualTo(200);
+        for (String path : new String[]{"/api/inventory/1/health", "/api/inventory/health", "/healthz"}) {
+            MockHttpServletResponse response = send(filter, path);
+            assertThat(response.getStatus()).as(path).isEqualTo(503);
+            assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        }
+    }
+
+    @Test
+    void shrinksBelowTheInitialLimitOnceLatencyRises() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 5, 200, 2.0, 20, 60_000);
+
+        window(limiter, 1);
+        for (int i = 0; i < 20; i++) {
+            window(limiter, 50);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    // Completes requests with the given latency for one window; the last one closes the window
+    private static void window(AdaptiveConcurrencyLimiter limiter, long latencyMillis) throws InterruptedException {
+        for (int i = 0; i < 10; i++) {
+            complete(limiter, latencyMillis);
+        }
+        Thread.sleep(25);
+        complete(limiter, latencyMillis);
+    }
+
+    private static void complete(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+        assertThat(limiter.tryAcquire()).isTrue();
+        limiter.release(System.nanoTime() - latencyMillis * 1_000_000);
+    }
+
+    private static MockHttpServletResponse send(ConcurrencyLimitFilter filter, String path) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", CONTEXT_PATH + path);
+        request.setContextPath(CONTEXT_PATH);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
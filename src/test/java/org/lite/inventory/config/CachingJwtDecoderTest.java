@@ -0,0 +1,75 @@
+package org.lite.inventory.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingJwtDecoderTest {
+
+    private final Map<String, Integer> decodes = new HashMap<>();
+    private final Map<String, Instant> expiries = new HashMap<>();
+
+    @Test
+    void verifiesEachTokenOnceUntilItExpires() {
+        CachingJwtDecoder decoder = decoder(10);
+        expiries.put("gateway", Instant.now().plusSeconds(300));
+        expiries.put("stale", Instant.now().minusSeconds(120));
+
+        for (int i = 0; i < 3; i++) {
+            decoder.decode("gateway");
+            decoder.decode("stale");
+        }
+
+        assertThat(decodes).containsEntry("gateway", 1).containsEntry("stale", 3);
+    }
+
+    @Test
+    void keepsTokensInUseWhenFullOfNewOnes() throws InterruptedException {
+        CachingJwtDecoder decoder = decoder(16);
+        expiries.put("gateway", Instant.now().plusSeconds(300));
+        decoder.decode("gateway");
+
+        for (int i = 0; i < 60; i++) {
+            // Use times are kept to the millisecond
+            Thread.sleep(2);
+            decoder.decode("gateway");
+            expiries.put("user" + i, Instant.now().plusSeconds(300));
+            decoder.decode("user" + i);
+        }
+
+        assertThat(decodes).containsEntry("gateway", 1);
+    }
+
+    @Test
+    void dropsExpiredTokensFirst() throws InterruptedException {
+        CachingJwtDecoder decoder = decoder(4);
+        expiries.put("old", Instant.now().plusSeconds(300));
+        decoder.decode("old");
+        for (int i = 0; i < 3; i++) {
+            // Valid when decoded, expired by the time the cache is full
+            expiries.put("short" + i, Instant.now().minusSeconds(59).minusMillis(990));
+            decoder.decode("short" + i);
+        }
+        Thread.sleep(20);
+
+        expiries.put("new", Instant.now().plusSeconds(300));
+        decoder.decode("new");
+        decoder.decode("old");
+
+        assertThat(decodes).containsEntry("old", 1);
+    }
+
+    private CachingJwtDecoder decoder(int maxEntries) {
+        return new CachingJwtDecoder(token -> {
+            decodes.merge(token, 1, Integer::sum);
+            Instant expiresAt = expiries.get(token);
+            return Jwt.withTokenValue(token).header("alg", "RS256").subject(token)
+                    .issuedAt(expiresAt.minusSeconds(600)).expiresAt(expiresAt).build();
+        }, maxEntries);
+    }
+}
@@ -0,0 +1,34 @@
+package org.lite.inventory.config;
+
+import org.junit.jupiter.api.Test;
+
+import javax.security.auth.x500.X500Principal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrustedPeerCertificatesTest {
+
+    @Test
+    void readsTheMostSpecificCommonName() {
+        assertThat(cn("CN=inventory-service, OU=Services, O=Lite")).isEqualTo("inventory-service");
+        assertThat(cn("OU=Services, CN=inventory-service")).isEqualTo("inventory-service");
+        assertThat(cn("CN=inventory-service, CN=Services CA")).isEqualTo("inventory-service");
+        assertThat(cn("CN=inventory-service+OU=Services, O=Lite")).isEqualTo("inventory-service");
+    }
+
+    @Test
+    void decodesEscapedCharacters() {
+        assertThat(cn("CN=inventory\\, service, O=Lite")).isEqualTo("inventory, service");
+        assertThat(cn("CN=\"inventory-service\", O=Lite")).isEqualTo("inventory-service");
+    }
+
+    @Test
+    void findsNoNameInASubjectWithoutOne() {
+        assertThat(cn("OU=CN=inventory-service, O=Lite")).isNull();
+        assertThat(cn("O=Lite")).isNull();
+    }
+
+    private static String cn(String subject) {
+        return TrustedPeerCertificates.commonName(new X500Principal(subject));
+    }
+}
@@ -0,0 +1,59 @@
+package org.lite.inventory.error;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.ErrorResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ErrorTemplateTest {
+
+    // Configured like Spring Boot's, which writes dates as ISO strings
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+    @Test
+    void rendersTheSameJsonAsJackson() throws Exception {
+        ErrorTemplate template = ErrorTemplate.of(HttpStatus.NOT_FOUND, "ITEM_NOT_FOUND",
+                "Item \"not\" found with id: ", "/api/inventory/");
+
+        for (int i = 0; i < 100; i++) {
+            String rendered = new String(template.render("42", "42"), StandardCharsets.UTF_8);
+            ErrorResponse parsed = objectMapper.readValue(rendered, ErrorResponse.class);
+
+            assertThat(parsed.getMessage()).isEqualTo("Item \"not\" found with id: 42");
+            assertThat(parsed.getPath()).isEqualTo("/api/inventory/42");
+            assertThat(objectMapper.writeValueAsString(parsed)).isEqualTo(rendered);
+        }
+    }
+
+    @Test
+    void rendersErrorsWithoutAPathAsNull() throws Exception {
+        ErrorTemplate template = ErrorTemplate.of(HttpStatus.SERVICE_UNAVAILABLE, "SERVICE_OVERLOADED",
+                "The service is overloaded, retry later", null);
+
+        String rendered = new String(template.render(null, "/ignored"), StandardCharsets.UTF_8);
+
+        assertThat(objectMapper.readValue(rendered, ErrorResponse.class).getPath()).isNull();
+        assertThat(rendered).contains("\"path\":null");
+    }
+
+    @Test
+    void formatsTimestampsLikeJacksonAtEveryPrecision() throws Exception {
+        Instant second = Instant.parse("2026-10-19T08:30:00Z");
+        for (long nanos : new long[]{0, 100_000_000, 120_000_000, 123_456_000, 123_456_789, 1}) {
+            Instant instant = second.plusNanos(nanos);
+            String expected = objectMapper.writeValueAsString(LocalDateTime.ofInstant(instant, ZoneId.systemDefault()));
+
+            assertThat('"' + new String(ErrorClock.encode(instant), StandardCharsets.UTF_8) + '"').isEqualTo(expected);
+        }
+    }
+}
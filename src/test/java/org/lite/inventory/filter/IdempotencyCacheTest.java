@@ -0,0 +1,78 @@
+package org.lite.inventory.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyCacheTest {
+
+    private static final IdempotencyCache.StoredResponse CREATED =
+            new IdempotencyCache.StoredResponse(201, "application/json", new HttpHeaders(), new byte[0]);
+
+    @Test
+    void replaysCompletedKeysAndRejectsThemForOtherRequests() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 10);
+
+        assertThat(cache.claim("k", 1)).isNull();
+        assertThat(cache.claim("k", 1).getResponse()).isNull();
+        cache.complete("k", 1, CREATED);
+
+        assertThat(cache.claim("k", 1).getResponse()).isSameAs(CREATED);
+        assertThat(cache.claim("k", 2).getFingerprint()).isEqualTo(1);
+    }
+
+    @Test
+    void releasedKeysNeitherCountTowardTheLimitNorEvictLiveOnes() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 4);
+        cache.claim("kept", 1);
+        cache.complete("kept", 1, CREATED);
+
+        for (int i = 0; i < 10; i++) {
+            cache.claim("failed" + i, 1);
+            cache.release("failed" + i, 1);
+        }
+        cache.claim("second", 1);
+        cache.claim("third", 1);
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.claim("kept", 1).getResponse()).isSameAs(CREATED);
+    }
+
+    @Test
+    void compactsTheQueueWhenReleasedKeysPileUpBehindALiveOne() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 100_000);
+        cache.claim("kept", 1);
+
+        for (int i = 0; i < 5000; i++) {
+            cache.claim("failed" + i, 1);
+            cache.release("failed" + i, 1);
+        }
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.queued()).isLessThanOrEqualTo(1025);
+    }
+
+    @Test
+    void evictsTheOldestKeyWhenFull() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 2);
+        cache.claim("first", 1);
+        cache.claim("second", 1);
+        cache.claim("third", 1);
+        cache.claim("fourth", 1);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.claim("first", 2)).isNull();
+    }
+
+    @Test
+    void reclaimsExpiredKeysOnce() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache(1, 10);
+        cache.claim("k", 1);
+        Thread.sleep(5);
+
+        assertThat(cache.claim("k", 2)).isNull();
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.queued()).isEqualTo(1);
+    }
+}
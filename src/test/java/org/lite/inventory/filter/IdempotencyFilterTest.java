@@ -0,0 +1,185 @@
+package org.lite.inventory.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyFilterTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new IdempotencyCache(60_000, 100));
+        ReflectionTestUtils.setField(filter, "maxBodyBytes", 65536);
+        ReflectionTestUtils.setField(filter, "maxRequestBytes", 16);
+    }
+
+    @Test
+    void replaysTheStoredResponseWithItsHeaders() throws Exception {
+        MockHttpServletResponse first = send(create("k1", "{\"name\":\"Desk\"}"), (request, response) -> {
+            response.setStatus(201);
+            response.setHeader("Location", "/api/inventory/7");
+            response.setHeader("ETag", "\"1\"");
+            response.addHeader("Vary", "Accept");
+            response.addHeader("Vary", "Authorization");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"id\":7}");
+        });
+        MockHttpServletResponse retry = send(create("k1", "{\"name\":\"Desk\"}"), (request, response) -> {
+            throw new AssertionError("The retry must not execute");
+        });
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getHeader("Location")).isEqualTo("/api/inventory/7");
+        assertThat(retry.getHeader("ETag")).isEqualTo("\"1\"");
+        assertThat(retry.getHeaders("Vary")).containsExactly("Accept", "Authorization");
+        assertThat(retry.getContentType()).startsWith("application/json");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"id\":7}");
+    }
+
+    @Test
+    void rejectsAKeyReusedForAnotherRequest() throws Exception {
+        send(create("k1", "{\"name\":\"Desk\"}"), (request, response) -> response.setStatus(201));
+
+        MockHttpServletResponse reused = send(create("k1", "{\"name\":\"Chair\"}"), (request, response) -> {
+        });
+
+        assertThat(reused.getStatus()).isEqualTo(422);
+        assertThat(reused.getContentAsString()).contains("IDEMPOTENCY_KEY_REUSED");
+    }
+
+    @Test
+    void rejectsARetryWhileTheFirstRequestIsRunning() throws Exception {
+        MockHttpServletResponse[] concurrent = new MockHttpServletResponse[1];
+        send(create("k1", "{}"), (request, response) -> {
+            concurrent[0] = send(create("k1", "{}"), (retryRequest, retryResponse) -> {
+            });
+            response.setStatus(201);
+        });
+
+        assertThat(concurrent[0].getStatus()).isEqualTo(409);
+        assertThat(concurrent[0].getContentAsString()).contains("IDEMPOTENCY_KEY_IN_PROGRESS");
+    }
+
+    @Test
+    void executesAgainAfterAServerError() throws Exception {
+        send(create("k1", "{}"), (request, response) -> response.setStatus(503));
+        MockHttpServletResponse retry = send(create("k1", "{}"), (request, response) -> response.setStatus(201));
+
+        assertThat(executions.get()).isEqualTo(2);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void passesTheBodyToAsynchronousReaders() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        boolean[] allRead = new boolean[1];
+
+        send(create("k1", "{\"name\":\"Desk\"}"), (request, response) -> {
+            ServletInputStream input = request.getInputStream();
+            input.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    byte[] buffer = new byte[4];
+                    int n;
+                    while (input.isReady() && (n = input.read(buffer)) >= 0) {
+                        read.write(buffer, 0, n);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allRead[0] = true;
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    throw new AssertionError(t);
+                }
+            });
+            response.setStatus(201);
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"name\":\"Desk\"}");
+        assertThat(allRead[0]).isTrue();
+    }
+
+    @Test
+    void refusesBodiesOverTheLimitWithoutExecuting() throws Exception {
+        MockHttpServletRequest declared = create("k1", "{\"name\":\"Writing desk\"}");
+        // Chunked: no Content-Length, so the body is read up to the limit
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/inventory") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, "k2");
+        chunked.setContent(new byte[1 << 20]);
+
+        for (MockHttpServletRequest request : List.of(declared, chunked)) {
+            MockHttpServletResponse response = send(request, (filtered, filteredResponse) -> {
+                throw new AssertionError("An oversized request must not execute");
+            });
+
+            assertThat(response.getStatus()).isEqualTo(413);
+            assertThat(response.getContentAsString()).contains("PAYLOAD_TOO_LARGE");
+        }
+        assertThat(executions.get()).isZero();
+        // Nothing was claimed, so the key is free for a request within the limit
+        MockHttpServletResponse retry = send(create("k1", "{}"), (request, response) -> response.setStatus(201));
+        assertThat(retry.getStatus()).isEqualTo(201);
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request, Handler handler) throws IOException, ServletException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response)
+                    throws IOException, ServletException {
+                executions.incrementAndGet();
+                handler.handle((HttpServletRequest) request,
+                        (HttpServletResponse) response);
+            }
+        });
+        return response;
+    }
+
+    private static MockHttpServletRequest create(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/inventory");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpServletRequest request, HttpServletResponse response)
+                throws IOException, ServletException;
+    }
+}
@@ -0,0 +1,118 @@
+package org.lite.inventory.history;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.HandoffHistory;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.StockHistoryPoint;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockHistoryTest {
+
+    private InventoryStore store;
+    private StockHistory history;
+
+    @BeforeEach
+    void setUp() {
+        store = new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        history = new StockHistory(store, Duration.ofDays(7));
+    }
+
+    @Test
+    void recordsQuantityAndPriceChangesOnly() {
+        store.put(new InventoryItem(1L, "Laptop", 8, 999.99));
+        store.put(new InventoryItem(1L, "Notebook", 8, 999.99));
+        store.put(new InventoryItem(1L, "Notebook", 12, 949.99));
+
+        assertThat(history.getEventCount()).isEqualTo(2);
+        assertThat(history.getItemCount()).isEqualTo(1);
+        assertThat(points(1)).singleElement().satisfies(point -> {
+            assertThat(point.getQuantity()).isEqualTo(12);
+            assertThat(point.getPrice()).isEqualTo(949.99);
+            assertThat(point.getMinQuantity()).isEqualTo(8);
+            assertThat(point.getMaxQuantity()).isEqualTo(12);
+            assertThat(point.getChanges()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void answersForUnchangedItemsFromTheirCurrentState() {
+        assertThat(points(2)).singleElement().satisfies(point -> {
+            assertThat(point.getQuantity()).isEqualTo(20);
+            assertThat(point.getChanges()).isZero();
+        });
+        assertThat(history.getItemCount()).isZero();
+        assertThat(history.query(99, Instant.now().minusSeconds(60), Instant.now(), 1)).isEmpty();
+    }
+
+    @Test
+    void exportsEveryEncodingAndMergesByTime() {
+        ItemHistory original = new ItemHistory(true, 10, 1.50);
+        original.append(1_000, 9, 1.50, true);
+        original.append(2_000, 9, 1.75, true);
+        original.append(3_000, 9, Math.PI, true);
+        original.append(500_000, 9, Math.PI, false);
+        HandoffHistory exported = original.export();
+
+        assertThat(exported.isExisted()).isTrue();
+        assertThat(exported.getTimes()).containsExactly(1_000, 2_000, 3_000, 500_000);
+        assertThat(exported.getQuantities()).containsExactly(9, 9, 9, 9);
+        assertThat(exported.getPrices()).containsExactly(1.50, 1.75, Math.PI, Math.PI);
+        assertThat(exported.getPresent()).containsExactly(true, true, true, false);
+
+        // The same events again, and the new owner's own change in between
+        HandoffHistory local = new HandoffHistory(false, 0, 0, new long[] {2_000, 4_000}, new int[] {9, 7},
+                new double[] {1.75, Math.PI}, new boolean[] {true, true});
+        HandoffHistory merged = ItemHistory.merge(local, exported).export();
+
+        assertThat(merged.getInitialQuantity()).isEqualTo(10);
+        assertThat(merged.getTimes()).containsExactly(1_000, 2_000, 3_000, 4_000, 500_000);
+        assertThat(merged.getQuantities()).containsExactly(9, 9, 9, 7, 7);
+    }
+
+    @Test
+    void prunesOldChunksAndExpiredRemovals() {
+        ItemHistory removed = new ItemHistory(true, 10, 1.0);
+        for (int i = 0; i < 1_000; i++) {
+            removed.append(i * 1_000L, i, 1.0, true);
+        }
+        removed.append(1_000_000, 999, 1.0, false);
+        int before = removed.byteSize();
+
+        assertThat(removed.prune(900_000)).isPositive();
+        assertThat(removed.byteSize()).isLessThan(before);
+        assertThat(removed.downsample(0, 1_000_000, 1_000_000)).singleElement()
+                .satisfies(point -> assertThat(point.getMinQuantity()).isGreaterThan(0));
+        assertThat(removed.isExpired(1_000_000)).isFalse();
+        assertThat(removed.isExpired(1_000_001)).isTrue();
+    }
+
+    @Test
+    void dropsHandedOffHistoriesAndCountsMergedOnes() {
+        store.put(new InventoryItem(1L, "Laptop", 8, 999.99));
+        HandoffHistory exported = history.export(1);
+        store.delete(1);
+        history.drop(1);
+        assertThat(history.getItemCount()).isZero();
+        assertThat(history.getByteSize()).isZero();
+
+        history.merge(1, exported);
+
+        assertThat(history.getByteSize()).isPositive();
+        assertThat(history.export(1).getQuantities()).containsExactly(8);
+    }
+
+    private List<StockHistoryPoint> points(long id) {
+        Instant now = Instant.now();
+        return history.query(id, now.minusSeconds(60), now.plusSeconds(60), 1).orElseThrow().getPoints();
+    }
+}
@@ -0,0 +1,96 @@
+package org.lite.inventory.interceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lite.inventory.tracing.Span;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.TraceContext;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceContextInterceptorTest {
+
+    private static final String CALLER_SAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final String CALLER_UNSAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00";
+
+    @TempDir
+    Path directory;
+
+    private SpanFileExporter exporter;
+    private Tracer tracer;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new SpanFileExporter(directory.resolve("traces.ndjson").toString(), 16, Long.MAX_VALUE,
+                "inventory-service", new ObjectMapper());
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("spanFileExporter", exporter);
+        tracer = new Tracer(beanFactory.getBeanProvider(SpanFileExporter.class), 0);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exporter.stop();
+    }
+
+    @Test
+    void sendsTheClientSpanOfASampledTrace() throws IOException {
+        try (Span server = tracer.startServerSpan("GET", CALLER_SAMPLED)) {
+            TraceContext serverContext = tracer.currentContext();
+
+            TraceContext sent = TraceContext.parse(send(new TraceContextInterceptor(tracer)));
+
+            assertThat(server.isRecording()).isTrue();
+            assertThat(sent).isNotNull();
+            assertThat(sent.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+            assertThat(sent.spanId()).isNotEqualTo(serverContext.spanId());
+            assertThat(sent.sampled()).isTrue();
+            assertThat(tracer.currentContext()).isEqualTo(serverContext);
+        }
+    }
+
+    @Test
+    void passesOnTheDecisionNotToSample() throws IOException {
+        try (Span server = tracer.startServerSpan("GET", CALLER_UNSAMPLED)) {
+            TraceContext serverContext = tracer.currentContext();
+
+            String sent = send(new TraceContextInterceptor(tracer));
+
+            assertThat(server.isRecording()).isFalse();
+            assertThat(sent).isEqualTo(serverContext.toTraceparent()).endsWith("-00");
+        }
+    }
+
+    @Test
+    void sendsNothingOutsideATraceOrWithTracingOff() throws IOException {
+        Tracer disabled = new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 1);
+
+        assertThat(send(new TraceContextInterceptor(tracer))).isNull();
+        try (Span server = disabled.startServerSpan("GET", CALLER_SAMPLED)) {
+            assertThat(server.isRecording()).isFalse();
+            assertThat(send(new TraceContextInterceptor(disabled))).isNull();
+        }
+    }
+
+    // The traceparent header of the outgoing request
+    private static String send(TraceContextInterceptor interceptor) throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.GET,
+                URI.create("https://gateway/product-service/api/products/p1"));
+        interceptor.intercept(request, new byte[0],
+                (executed, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK)).close();
+        return request.getHeaders().getFirst(TraceContext.TRACEPARENT_HEADER);
+    }
+}
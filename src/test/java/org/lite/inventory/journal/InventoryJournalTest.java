@@ -0,0 +1,131 @@
+package org.lite.inventory.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InventoryJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<InventoryJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void stopJournals() throws Exception {
+        for (InventoryJournal journal : journals) {
+            journal.stop();
+        }
+    }
+
+    @Test
+    void rebuildsTheStoreFromTheJournalOnRestart() throws Exception {
+        InventoryStore store = store();
+        InventoryJournal journal = start(store, InventoryJournal.Durability.FSYNC);
+        InventoryItem desk = store.create("Desk", 5, 120.0);
+        store.patch(1, quantity(3));
+        store.delete(2);
+        journal.stop();
+        journals.remove(journal);
+
+        InventoryStore restarted = store();
+        start(restarted, InventoryJournal.Durability.MEMORY);
+
+        assertThat(contents(restarted)).isEqualTo(contents(store)).containsKey(desk.getId()).doesNotContainKey(2L);
+        assertThat(restarted.create("Chair", 1, 49.99).getId()).isEqualTo(desk.getId() + 1);
+    }
+
+    @Test
+    void failsWritesThatDoNotReachTheDiskInTime() throws Exception {
+        InventoryStore store = store();
+        InventoryJournal journal = start(store, InventoryJournal.Durability.FSYNC);
+        stall(journal);
+
+        assertThatThrownBy(() -> store.create("Desk", 5, 120.0))
+                .isInstanceOfSatisfying(JournalUnavailableException.class,
+                        e -> assertThat(e.getError().getStatus().value()).isEqualTo(503));
+
+        // Applied in memory all the same
+        assertThat(store.size()).isEqualTo(4);
+        assertThat(journal.getDurabilityTimeoutCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesWritesBeforeTheStoreLockWhileTheRingIsMoreThanHalfFull() throws Exception {
+        InventoryStore store = store();
+        InventoryJournal journal = start(store, InventoryJournal.Durability.MEMORY);
+        stall(journal);
+
+        // A ring of 4 takes 3 changes before writers are held back
+        for (int i = 0; i < 3; i++) {
+            store.patch(1, quantity(i));
+        }
+        AtomicReference<Throwable> otherFailure = new AtomicReference<>();
+        Thread otherWriter = Thread.ofVirtual().start(() -> {
+            try {
+                store.patch(2, quantity(0));
+            } catch (RuntimeException e) {
+                otherFailure.set(e);
+            }
+        });
+
+        assertThatThrownBy(() -> store.patch(1, quantity(99)))
+                .isInstanceOfSatisfying(JournalUnavailableException.class,
+                        e -> assertThat(e.getError().getStatus().value()).isEqualTo(503));
+        otherWriter.join();
+        assertThat(otherFailure.get()).isInstanceOf(JournalUnavailableException.class);
+
+        // Neither write was applied
+        assertThat(store.findById(1)).hasValueSatisfying(item -> assertThat(item.getQuantity()).isEqualTo(2));
+        assertThat(store.findById(2)).hasValueSatisfying(item -> assertThat(item.getQuantity()).isEqualTo(20));
+        assertThat(journal.getRejectedWriteCount()).isEqualTo(2);
+        assertThat(journal.getLag()).isEqualTo(3);
+    }
+
+    private InventoryJournal start(InventoryStore store, InventoryJournal.Durability durability) throws IOException {
+        InventoryJournal journal = new InventoryJournal(store, directory.toString(), durability, 4, 16,
+                Long.MAX_VALUE, 200, 200);
+        journal.run(null);
+        journals.add(journal);
+        return journal;
+    }
+
+    // Closes the file under the writer, which then retries every batch without getting anywhere
+    private static void stall(InventoryJournal journal) throws IOException {
+        ((JournalFile) ReflectionTestUtils.getField(journal, "file")).close();
+    }
+
+    private static InventoryStore store() {
+        return new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+    }
+
+    private static InventoryItemPatch quantity(int quantity) {
+        InventoryItemPatch patch = new InventoryItemPatch();
+        patch.setQuantity(quantity);
+        return patch;
+    }
+
+    private static Map<Long, InventoryItem> contents(InventoryStore store) {
+        Map<Long, InventoryItem> contents = new TreeMap<>();
+        store.values().forEach(item -> contents.put(item.getId(), item));
+        return contents;
+    }
+}
@@ -0,0 +1,286 @@
+package org.lite.inventory.replication;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.model.ReplicationEvent;
+import org.lite.inventory.service.IdRanges;
+import org.lite.inventory.service.InventoryChangeListener;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several replicators in one JVM, each with its own store, connected through a stub network that hands
+ * requests straight to the addressed node after a JSON round trip.
+ */
+class InventoryReplicatorTest {
+
+    private final Network network = new Network();
+
+    @Test
+    void writesOnEveryNodeConverge() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        Node c = network.start("c");
+
+        InventoryItem desk = a.store.create("Desk", 5, 120.0);
+        InventoryItem chair = b.store.create("Chair", 7, 49.99);
+        c.store.patch(1, patch(3));
+        c.store.delete(2);
+        network.shipAll();
+
+        assertThat(desk.getId()).isNotEqualTo(chair.getId());
+        assertThat(desk.getId()).isBetween(IdRanges.start(a.tag()), IdRanges.end(a.tag()) - 1);
+        assertThat(chair.getId()).isBetween(IdRanges.start(b.tag()), IdRanges.end(b.tag()) - 1);
+        assertThat(contents(b)).isEqualTo(contents(a)).containsKeys(desk.getId(), chair.getId()).doesNotContainKey(2L);
+        assertThat(contents(c)).isEqualTo(contents(a));
+        assertThat(a.store.findById(1)).hasValueSatisfying(item -> assertThat(item.getQuantity()).isEqualTo(3));
+
+        // Items received from a peer never move local allocation into the peer's range
+        assertThat(b.store.create("Lamp", 1, 20.0).getId()).isEqualTo(chair.getId() + 1);
+    }
+
+    @Test
+    void numbersStartupCatalogRowsTheSameOnEveryNode() {
+        List<Node> nodes = new ArrayList<>();
+        for (String name : List.of("a", "b")) {
+            Node node = network.add(name);
+            node.store.loadAll(List.of(new InventoryItem(null, "Desk", 5, 120.0), new InventoryItem(null, "Chair", 7, 49.99)), true);
+            node.startUp();
+            nodes.add(node);
+        }
+
+        // Numbered after the mock items, like on every node
+        assertThat(contents(nodes.get(0))).containsOnlyKeys(4L, 5L).isEqualTo(contents(nodes.get(1)));
+        assertThat(nodes.get(0).replicator.status().getIdRangeStart())
+                .isNotEqualTo(nodes.get(1).replicator.status().getIdRangeStart());
+    }
+
+    @Test
+    void replacingImportDeletesDroppedItemsOnPeers() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        InventoryItem chair = b.store.create("Chair", 7, 49.99);
+        network.shipAll();
+        assertThat(a.store.exists(chair.getId())).isTrue();
+
+        int callsBefore = network.calls.get();
+        a.store.loadAll(List.of(new InventoryItem(null, "Lamp", 2, 20.0)), true);
+        // Peers are only called once the import has released the store lock
+        assertThat(network.calls.get()).isEqualTo(callsBefore);
+        a.replicator.ship();
+
+        assertThat(contents(a)).hasSize(1);
+        assertThat(contents(b)).isEqualTo(contents(a));
+        assertThat(b.replicator.snapshot()).filteredOn(event -> event.getItem() == null)
+                .extracting(ReplicationEvent::getId)
+                .containsExactlyInAnyOrder(1L, 2L, 3L, chair.getId());
+    }
+
+    @Test
+    void antiEntropyRepairsMissedPushes() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        network.down.add("b");
+        a.store.create("Desk", 5, 120.0);
+        a.store.delete(3);
+        a.replicator.ship();
+        assertThat(a.replicator.status().getFailedShipments()).isEqualTo(1);
+        assertThat(contents(b)).isNotEqualTo(contents(a));
+
+        network.down.clear();
+        b.replicator.antiEntropy();
+
+        assertThat(contents(b)).isEqualTo(contents(a));
+    }
+
+    @Test
+    void mergesSnapshotsOneSliceAtATime() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        for (int i = 0; i < 5; i++) {
+            a.store.create("Item " + i, i, 1.0);
+        }
+        AtomicInteger lockHolds = new AtomicInteger();
+        b.store.addListener(new CommitCounter(lockHolds));
+        ReflectionTestUtils.setField(b.replicator, "maxBatchSize", 2);
+
+        b.replicator.apply(a.replicator.snapshot());
+
+        assertThat(contents(b)).isEqualTo(contents(a));
+        assertThat(lockHolds.get()).isEqualTo(3);
+    }
+
+    @Test
+    void movesOnFromATagTakenByAPeer() {
+        int own = IdRanges.tagOf("inventory-service:a");
+
+        assertThat(IdRanges.tagAvoiding("inventory-service:a", List.of("inventory-service:b"))).isEqualTo(own);
+        assertThat(IdRanges.tagAvoiding("inventory-service:a", List.of("inventory-service:a"))).isNotEqualTo(own);
+        assertThat(IdRanges.end(own)).isLessThanOrEqualTo(1L << 53);
+    }
+
+    private static InventoryItemPatch patch(int quantity) {
+        InventoryItemPatch patch = new InventoryItemPatch();
+        patch.setQuantity(quantity);
+        return patch;
+    }
+
+    private static Map<Long, InventoryItem> contents(Node node) {
+        Map<Long, InventoryItem> contents = new TreeMap<>();
+        node.store.values().forEach(item -> contents.put(item.getId(), item));
+        return contents;
+    }
+
+    private record Node(String name, InventoryStore store, InventoryReplicator replicator) {
+        void startUp() {
+            replicator.run(null);
+            replicator.onReady();
+        }
+
+        int tag() {
+            return (int) (replicator.status().getIdRangeStart() >>> IdRanges.RANGE_BITS);
+        }
+    }
+
+    private static final class Instance extends DefaultServiceInstance implements Registration {
+        Instance(String name) {
+            super("inventory-service:" + name, "inventory-service", name, 443, true);
+        }
+    }
+
+    private static final class CommitCounter implements InventoryChangeListener {
+        private final AtomicInteger commits;
+
+        CommitCounter(AtomicInteger commits) {
+            this.commits = commits;
+        }
+
+        @Override
+        public void onPut(InventoryItem previous, InventoryItem current) {
+        }
+
+        @Override
+        public void onRemove(InventoryItem removed) {
+        }
+
+        @Override
+        public void onReload(Collection<InventoryItem> items) {
+        }
+
+        @Override
+        public void afterCommit() {
+            commits.incrementAndGet();
+        }
+    }
+
+    /**
+     * Discovery and transport for the nodes of one test. Hosts listed in {@link #down} refuse connections.
+     */
+    private static final class Network extends RestTemplate implements DiscoveryClient {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private final Map<String, Instance> instances = new LinkedHashMap<>();
+        private final Set<String> down = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        Node start(String name) {
+            Node node = add(name);
+            node.startUp();
+            return node;
+        }
+
+        Node add(String name) {
+            Instance instance = new Instance(name);
+            DefaultListableBeanFactory registration = new DefaultListableBeanFactory();
+            registration.registerSingleton("registration", instance);
+            InventoryStore store = new InventoryStore(
+                    new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+            InventoryReplicator replicator = new InventoryReplicator(store, this, this,
+                    registration.getBeanProvider(Registration.class), "inventory-service", 100_000);
+            ReflectionTestUtils.setField(replicator, "contextPath", "");
+            ReflectionTestUtils.setField(replicator, "maxBatchSize", 1000);
+            ReflectionTestUtils.setField(replicator, "tombstoneTtlMillis", 3_600_000L);
+            Node node = new Node(name, store, replicator);
+            nodes.put(name, node);
+            instances.put(name, instance);
+            return node;
+        }
+
+        void shipAll() {
+            nodes.values().forEach(node -> node.replicator.ship());
+        }
+
+        @Override
+        public String description() {
+            return "test network";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return new ArrayList<>(instances.values());
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of("inventory-service");
+        }
+
+        @Override
+        public URI postForLocation(String url, Object request, Object... uriVariables) {
+            URI uri = URI.create(url);
+            InventoryReplicator target = connect(uri);
+            String path = uri.getPath().substring(InventoryReplicator.REPLICATION_PATH.length());
+            if (path.equals("/events")) {
+                target.apply(objectMapper.convertValue(request, new TypeReference<List<ReplicationEvent>>() {}));
+            } else if (path.equals("/resync")) {
+                target.resyncFrom(UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("from"));
+            }
+            return null;
+        }
+
+        @Override
+        public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                              ParameterizedTypeReference<T> responseType, Object... uriVariables) {
+            List<ReplicationEvent> snapshot = connect(URI.create(url)).snapshot();
+            return ResponseEntity.ok(objectMapper.convertValue(snapshot, objectMapper.constructType(responseType.getType())));
+        }
+
+        private InventoryReplicator connect(URI uri) {
+            calls.incrementAndGet();
+            if (down.contains(uri.getHost())) {
+                throw new ResourceAccessException("Connection refused: " + uri.getHost());
+            }
+            return nodes.get(uri.getHost()).replicator;
+        }
+    }
+}
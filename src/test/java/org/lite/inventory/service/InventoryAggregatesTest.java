@@ -0,0 +1,102 @@
+package org.lite.inventory.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryStats;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryAggregatesTest {
+
+    private InventoryStore store;
+    private InventoryAggregates aggregates;
+
+    @BeforeEach
+    void setUp() {
+        store = new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        aggregates = new InventoryAggregates(store);
+    }
+
+    @Test
+    void followsEveryChange() {
+        InventoryItem lamp = store.create("Lamp", 0, 20.0);
+        store.put(new InventoryItem(1L, "Laptop", 5, 999.99));
+        store.delete(2);
+
+        InventoryStats stats = aggregates.snapshot();
+        assertThat(stats.getItemCount()).isEqualTo(3);
+        assertThat(stats.getTotalQuantity()).isEqualTo(5 + 30 + lamp.getQuantity());
+        assertThat(stats.getTotalValue()).isEqualTo(Math.round((5 * 999.99 + 30 * 149.99) * 100) / 100.0);
+        assertThat(stats.getOutOfStockCount()).isEqualTo(1);
+        assertThat(stats.getQuantityHistogram()).containsAllEntriesOf(Map.of("<1", 1L, "1-10", 1L, "10-100", 1L));
+        assertThat(stats.getPriceHistogram()).containsAllEntriesOf(Map.of("10-100", 1L, "100-1000", 2L));
+
+        store.loadAll(List.of(new InventoryItem(null, "Desk", 2, 120.0)), true);
+        assertThat(aggregates.snapshot().getItemCount()).isEqualTo(1);
+    }
+
+    @Test
+    void correctsDriftedTotals() {
+        // A change the store never made
+        aggregates.onRemove(new InventoryItem(7L, "Ghost", 4, 1.0));
+        assertThat(aggregates.snapshot().getItemCount()).isEqualTo(2);
+
+        aggregates.reconcile();
+
+        InventoryStats stats = aggregates.snapshot();
+        assertThat(stats.getItemCount()).isEqualTo(3);
+        assertThat(stats.getTotalQuantity()).isEqualTo(60);
+        assertThat(stats.getReconciliationMismatches()).isEqualTo(1);
+        assertThat(stats.getLastReconciled()).isNotNull();
+    }
+
+    @Test
+    void scansWithoutHoldingWritersBackAndKeepsTheirChanges() {
+        SlowItem slow = new SlowItem();
+        store.put(slow);
+        slow.armed = true;
+
+        aggregates.reconcile();
+
+        assertThat(slow.writeCompleted).isTrue();
+        InventoryStats stats = aggregates.snapshot();
+        assertThat(stats.getItemCount()).isEqualTo(5);
+        assertThat(stats.getTotalQuantity()).isEqualTo(10 + 20 + 30 + 1 + 2);
+        assertThat(stats.getReconciliationMismatches()).isZero();
+    }
+
+    /**
+     * An item that, when first read by the reconciliation scan, makes a write on another thread and waits for it.
+     */
+    private final class SlowItem extends InventoryItem {
+        private volatile boolean armed;
+        private volatile boolean writeCompleted;
+
+        SlowItem() {
+            super(99L, "Slow", 1, 1.0);
+        }
+
+        @Override
+        public int getQuantity() {
+            if (armed) {
+                armed = false;
+                Thread writer = new Thread(() -> store.create("Chair", 2, 10.0));
+                writer.start();
+                try {
+                    writer.join(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writeCompleted = !writer.isAlive();
+            }
+            return super.getQuantity();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.lite.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.lite.inventory.model.BulkLoadReport;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InventoryBulkLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path importDir;
+    private InventoryStore store;
+    private InventoryBulkLoader loader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        importDir = Files.createDirectory(tempDir.resolve("import"));
+        store = new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        loader = new InventoryBulkLoader(store, new ObjectMapper());
+        ReflectionTestUtils.setField(loader, "importDir", importDir);
+    }
+
+    @Test
+    void loadsCsvWithHeaderAndGeneratedIds() throws IOException {
+        Path file = Files.writeString(importDir.resolve("catalog.csv"),
+                "id,name,quantity,price\n10,Desk, large,5,120.5\r\n,Chair,7,49.99\n");
+
+        BulkLoadReport report = loader.load(file, null, true);
+
+        assertThat(report.getItems()).isEqualTo(2);
+        assertThat(store.findById(10)).hasValueSatisfying(item -> {
+            assertThat(item.getName()).isEqualTo("Desk, large");
+            assertThat(item.getQuantity()).isEqualTo(5);
+        });
+        assertThat(store.findById(11)).hasValueSatisfying(item -> assertThat(item.getName()).isEqualTo("Chair"));
+    }
+
+    @Test
+    void countsRepeatedIdsOnce() throws IOException {
+        Path file = Files.writeString(importDir.resolve("catalog.csv"), "5,A,1,1.0\n5,B,2,2.0\n6,C,3,3.0\n");
+
+        BulkLoadReport report = loader.load(file, null, true);
+
+        assertThat(report.getItems()).isEqualTo(2);
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.findById(5)).hasValueSatisfying(item -> assertThat(item.getName()).isEqualTo("B"));
+    }
+
+    @Test
+    void reportsLineAndColumnWithoutLineContent() throws IOException {
+        Path file = Files.writeString(importDir.resolve("catalog.csv"), "1,A,1,1.0\n2,secret,x1,2.0\n");
+
+        assertThatThrownBy(() -> loader.load(file, null, true))
+                .isInstanceOfSatisfying(CatalogFormatException.class, e -> {
+                    assertThat(e.getLine()).isEqualTo(2);
+                    assertThat(e.getColumn()).isEqualTo(10);
+                })
+                .message().doesNotContain("secret");
+        assertThat(store.size()).isEqualTo(3); // the mock items, untouched
+    }
+
+    @Test
+    void rejectsIdsThatOverflowALong() throws IOException {
+        Path file = Files.writeString(importDir.resolve("catalog.csv"), "1,A,1,1.0\n99999999999999999999,B,1,1.0\n");
+
+        assertThatThrownBy(() -> loader.load(file, null, true))
+                .isInstanceOf(CatalogFormatException.class)
+                .hasMessageContaining("line 2")
+                .hasMessageContaining("id out of range");
+    }
+
+    @Test
+    void reportsJsonErrorsWithoutJacksonMessage() throws IOException {
+        Path file = Files.writeString(importDir.resolve("catalog.ndjson"),
+                "{\"id\":1,\"name\":\"A\",\"quantity\":1,\"price\":1.0}\n{\"id\":2,\"name\":\"secret\",\"quantity\":\"many\"}\n");
+
+        assertThatThrownBy(() -> loader.load(file, null, true))
+                .isInstanceOf(CatalogFormatException.class)
+                .hasMessageStartingWith("line 2, column ")
+                .message().doesNotContain("secret").doesNotContain("many");
+    }
+
+    @Test
+    void resolvesImportFilesInsideTheImportDirectoryOnly() throws IOException {
+        Path inside = Files.writeString(importDir.resolve("catalog.csv"), "1,A,1,1.0\n");
+        Path outside = Files.writeString(tempDir.resolve("secret.csv"), "1,A,1,1.0\n");
+        Files.createSymbolicLink(importDir.resolve("link.csv"), outside);
+
+        assertThat(loader.resolveImportFile("catalog.csv")).isEqualTo(inside.toRealPath());
+        assertThatThrownBy(() -> loader.resolveImportFile("../secret.csv"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> loader.resolveImportFile(outside.toString()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> loader.resolveImportFile("link.csv"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,84 @@
+package org.lite.inventory.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryNameIndexTest {
+
+    private InventoryStore store;
+    private InventoryNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        store = new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        index = new InventoryNameIndex(store);
+    }
+
+    @Test
+    void ranksNamesStartingWithTheQueryFirst() {
+        store.create("Wireless Mouse", 1, 10);
+        store.create("Mouse Pad", 1, 5);
+        store.create("Mousetrap", 1, 3);
+
+        assertThat(names(index.search("mou", 10))).containsExactly("Mouse Pad", "Mousetrap", "Wireless Mouse");
+        assertThat(names(index.search("wire mou", 10))).containsExactly("Wireless Mouse");
+        assertThat(names(index.search("pad mouse", 10))).containsExactly("Mouse Pad");
+    }
+
+    @Test
+    void followsRenamesAndDeletes() {
+        InventoryItem item = store.create("Desk Lamp", 1, 20);
+        assertThat(index.findByName("desk lamp")).containsExactly(item);
+
+        InventoryItemPatch patch = new InventoryItemPatch();
+        patch.setName("Floor Lamp");
+        store.patch(item.getId(), patch);
+        assertThat(index.findByName("Desk Lamp")).isEmpty();
+        assertThat(names(index.search("floor", 10))).containsExactly("Floor Lamp");
+        assertThat(index.search("desk", 10)).isEmpty();
+
+        store.delete(item.getId());
+        assertThat(index.search("lamp", 10)).isEmpty();
+    }
+
+    @Test
+    void skipsItemsWithoutAName() {
+        store.put(new InventoryItem(9L, null, 1, 1.0));
+        assertThat(index.search("lamp", 10)).isEmpty();
+
+        // A reader that found the id under its old name, before the rename to no name was indexed
+        index.onPut(null, new InventoryItem(9L, "Lamp", 1, 1.0));
+        assertThat(index.findByName("lamp")).isEmpty();
+        assertThat(index.search("lamp", 10)).isEmpty();
+    }
+
+    @Test
+    void keepsSharedTokensConsistentAcrossManyWrites() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(store.create("Cable " + i, 1, 1).getId());
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            store.delete(ids.get(i));
+        }
+
+        assertThat(index.search("cable 19999", 5)).extracting(InventoryItem::getName).containsExactly("Cable 19999");
+        assertThat(index.search("cable 19998", 5)).isEmpty();
+        // "cable" alone matches more than the candidate cap, yet every result is a live match
+        assertThat(index.search("cable", 50)).hasSize(50).allSatisfy(item -> assertThat(store.exists(item.getId())).isTrue());
+    }
+
+    private static List<String> names(List<InventoryItem> items) {
+        return items.stream().map(InventoryItem::getName).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package org.lite.inventory.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryRangeIndexTest {
+
+    private InventoryStore store;
+    private InventoryRangeIndex index;
+
+    // Mock items: 1 Laptop (10, 999.99), 2 Smartphone (20, 699.99), 3 Headphones (30, 149.99)
+    @BeforeEach
+    void setUp() {
+        store = new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        index = new InventoryRangeIndex(store);
+    }
+
+    @Test
+    void includesBothBoundsInAscendingOrder() {
+        assertThat(ids(index.findByPrice(149.99, 699.99, 0, 10))).containsExactly(3L, 2L);
+        assertThat(ids(index.findByPrice(0, Double.POSITIVE_INFINITY, 0, 10))).containsExactly(3L, 2L, 1L);
+        assertThat(ids(index.findByQuantity(10, 20, 10))).containsExactly(1L, 2L);
+        assertThat(ids(index.findByQuantity(30, 30, 10))).containsExactly(3L);
+    }
+
+    @Test
+    void filtersByMinimumQuantityAndStopsAtTheLimit() {
+        assertThat(ids(index.findByPrice(0, 1000, 20, 10))).containsExactly(3L, 2L);
+        assertThat(ids(index.findByPrice(0, 1000, 0, 2))).containsExactly(3L, 2L);
+        assertThat(ids(index.findByQuantity(0, 100, 1))).containsExactly(1L);
+    }
+
+    @Test
+    void followsPutsReplacesRemovesAndReloads() {
+        InventoryItem lamp = store.create("Lamp", 5, 20.0);
+        assertThat(ids(index.findByPrice(0, 100, 0, 10))).containsExactly(lamp.getId());
+
+        store.replace(lamp.getId(), "Lamp", 50, 1200.0);
+        assertThat(index.findByPrice(0, 100, 0, 10)).isEmpty();
+        assertThat(index.findByQuantity(0, 9, 10)).isEmpty();
+        assertThat(ids(index.findByPrice(1000, 2000, 0, 10))).containsExactly(lamp.getId());
+        assertThat(ids(index.findByQuantity(31, 100, 10))).containsExactly(lamp.getId());
+
+        InventoryItemPatch patch = new InventoryItemPatch();
+        patch.setPrice(800.0);
+        store.patch(1, patch);
+        assertThat(ids(index.findByPrice(700, 900, 0, 10))).containsExactly(1L);
+
+        store.delete(2);
+        assertThat(ids(index.findByQuantity(0, 100, 10))).containsExactly(1L, 3L, lamp.getId());
+
+        store.loadAll(List.of(new InventoryItem(7L, "Desk", 3, 120.0)), true);
+        assertThat(ids(index.findByPrice(0, Double.POSITIVE_INFINITY, 0, 10))).containsExactly(7L);
+        assertThat(ids(index.findByQuantity(0, 100, 10))).containsExactly(7L);
+    }
+
+    @Test
+    void findsNothingInEmptyOrInvertedRanges() {
+        assertThat(index.findByPrice(150, 699, 0, 10)).isEmpty();
+        assertThat(index.findByPrice(700, 600, 0, 10)).isEmpty();
+        assertThat(index.findByPrice(Double.NaN, 1000, 0, 10)).isEmpty();
+        assertThat(index.findByPrice(0, Double.NaN, 0, 10)).isEmpty();
+        assertThat(index.findByQuantity(11, 19, 10)).isEmpty();
+        assertThat(index.findByQuantity(20, 10, 10)).isEmpty();
+    }
+
+    private static List<Long> ids(List<InventoryItem> items) {
+        return items.stream().map(InventoryItem::getId).toList();
+    }
+}
@@ -0,0 +1,62 @@
+package org.lite.inventory.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostingsTest {
+
+    @Test
+    void matchesASortedSetUnderRandomChanges() {
+        Random random = new Random(42);
+        TreeSet<Long> expected = new TreeSet<>();
+        Postings postings = new Postings(500);
+        expected.add(500L);
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(postings.remove(id)).isEqualTo(expected.remove(id));
+            } else {
+                assertThat(postings.add(id)).isEqualTo(expected.add(id));
+            }
+            if (expected.isEmpty()) {
+                expected.add(id);
+                postings.add(id);
+            }
+        }
+        assertThat(postings.size()).isEqualTo(expected.size());
+        assertThat(postings.toArray()).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @Test
+    void appendsIncreasingIdsIntoFullChunks() {
+        Postings postings = Postings.of(new long[] {1, 2, 3});
+        for (long id = 4; id <= 10 * Postings.MAX_CHUNK; id++) {
+            postings.add(id);
+        }
+        assertThat(postings.size()).isEqualTo(10 * Postings.MAX_CHUNK);
+
+        long[] lowest = new long[5];
+        assertThat(postings.copyTo(lowest, 0, 5)).isEqualTo(5);
+        assertThat(lowest).containsExactly(1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void buildsFromSortedIdsAndEmptiesCompletely() {
+        long[] ids = new long[3 * Postings.MAX_CHUNK + 7];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 3L;
+        }
+        Postings postings = Postings.of(ids);
+        assertThat(postings.toArray()).containsExactly(ids);
+
+        for (long id : ids) {
+            assertThat(postings.remove(id)).isTrue();
+        }
+        assertThat(postings.isEmpty()).isTrue();
+        assertThat(postings.remove(0)).isFalse();
+    }
+}
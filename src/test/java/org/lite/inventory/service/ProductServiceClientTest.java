@@ -0,0 +1,158 @@
+package org.lite.inventory.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.model.ProductAvailabilityResponse;
+import org.lite.inventory.model.ProductInfo;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductServiceClientTest {
+
+    private StubProductService productService;
+    private ProductServiceClient client;
+
+    @BeforeEach
+    void setUp() {
+        productService = new StubProductService();
+        client = new ProductServiceClient(productService,
+                new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+        ReflectionTestUtils.setField(client, "gatewayBaseUrl", "https://gateway");
+        ReflectionTestUtils.setField(client, "batchWindowMillis", 5L);
+        ReflectionTestUtils.setField(client, "maxBatchSize", 50);
+        ReflectionTestUtils.setField(client, "timeoutMillis", 10_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void mergesConcurrentLookupsUnderLoad() throws Exception {
+        productService.latencyMillis = 20;
+        int callers = 2_000;
+        List<Future<ProductAvailabilityResponse>> results = new ArrayList<>(callers);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                String productId = "p" + (i % 100);
+                results.add(executor.submit(() -> {
+                    authenticate("token-a");
+                    return client.getAvailability(productId);
+                }));
+            }
+            for (int i = 0; i < callers; i++) {
+                List<ProductInfo> products = results.get(i).get().getProducts();
+                assertThat(products).extracting(ProductInfo::getId).containsExactly("p" + (i % 100));
+            }
+        }
+
+        assertThat(client.getLookupCount()).isEqualTo(callers);
+        // 100 distinct products in batches of up to 50, repeated at most once per 20 ms call
+        assertThat(client.getDownstreamCallCount()).isLessThan(callers / 10);
+        // A lookup that is alone in its batch window uses the single product endpoint
+        assertThat(productService.urls).allMatch(url -> url.contains("?ids=") || url.matches(".*/products/p\\d+"));
+        assertThat(productService.urls).anyMatch(url -> url.contains("?ids="));
+    }
+
+    @Test
+    void neverSharesCallsBetweenTokens() throws Exception {
+        productService.latencyMillis = 50;
+        List<Future<ProductAvailabilityResponse>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String token : List.of("token-a", "token-b")) {
+                for (int i = 0; i < 10; i++) {
+                    results.add(executor.submit(() -> {
+                        authenticate(token);
+                        return client.getAvailability("p1");
+                    }));
+                }
+            }
+            for (Future<ProductAvailabilityResponse> result : results) {
+                result.get();
+            }
+        }
+
+        assertThat(productService.tokens).containsExactlyInAnyOrder("token-a", "token-b");
+        assertThat(client.getDownstreamCallCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpWaitingAfterTheTimeout() {
+        ReflectionTestUtils.setField(client, "timeoutMillis", 50L);
+        productService.latencyMillis = 1_000;
+        authenticate("token-a");
+
+        assertThatThrownBy(() -> client.getAvailability("p1"))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("50 ms");
+    }
+
+    private static void authenticate(String token) {
+        Jwt jwt = Jwt.withTokenValue(token).header("alg", "none").subject(token).build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    /**
+     * Answers the list and single product endpoints with products named after their ids, and records the URL and
+     * forwarded token of every call.
+     */
+    private static final class StubProductService extends RestTemplate {
+        private final List<String> urls = Collections.synchronizedList(new ArrayList<>());
+        private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+        private volatile long latencyMillis;
+
+        @Override
+        public <T> T getForObject(URI url, Class<T> responseType) {
+            return responseType.cast(respond(url.toString()));
+        }
+
+        @Override
+        public <T> T getForObject(String url, Class<T> responseType, Object... uriVariables) {
+            return responseType.cast(respond(url));
+        }
+
+        private ProductAvailabilityResponse respond(String url) {
+            urls.add(url);
+            if (SecurityContextHolder.getContext().getAuthentication() instanceof JwtAuthenticationToken jwt) {
+                tokens.add(jwt.getToken().getTokenValue());
+            }
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int query = url.indexOf("?ids=");
+            String[] ids = query >= 0
+                    ? url.substring(query + 5).split(",")
+                    : new String[] {url.substring(url.lastIndexOf('/') + 1)};
+            List<ProductInfo> products = new ArrayList<>();
+            for (String id : ids) {
+                products.add(new ProductInfo(id, "Product " + id, null, null, null, false, null, null, null));
+            }
+            return new ProductAvailabilityResponse(products, null, "product-service", null);
+        }
+    }
+}
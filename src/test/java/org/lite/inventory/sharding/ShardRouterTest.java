@@ -0,0 +1,241 @@
+package org.lite.inventory.sharding;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.history.StockHistory;
+import org.lite.inventory.model.HandoffItem;
+import org.lite.inventory.model.InventoryItem;
+import org.lite.inventory.model.InventoryItemPatch;
+import org.lite.inventory.model.StockHistoryPoint;
+import org.lite.inventory.service.IdRanges;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several routers in one JVM, each with its own store, connected through a stub network that hands handoff
+ * requests straight to the addressed node after a JSON round trip.
+ */
+class ShardRouterTest {
+
+    private final Network network = new Network();
+
+    @Test
+    void dropsUnchangedStartupItemsWithoutHandingThemOff() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        a.router.refresh();
+
+        assertThat(network.handoffs.get()).isZero();
+        for (long id = 1; id <= 3; id++) {
+            Node owner = a.router.isLocal(id) ? a : b;
+            Node other = owner == a ? b : a;
+            assertThat(owner.store.exists(id)).isTrue();
+            assertThat(other.store.exists(id)).isFalse();
+        }
+    }
+
+    @Test
+    void handsOffWrittenItemsWhenOwnershipMoves() {
+        Node a = network.start("a");
+        List<InventoryItem> created = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            created.add(a.store.create("Item " + i, i, 1.0));
+        }
+        Node b = network.start("b");
+        a.router.refresh();
+
+        assertThat(network.handoffs.get()).isPositive();
+        for (InventoryItem item : created) {
+            Node owner = a.router.isLocal(item.getId()) ? a : b;
+            assertThat(owner.store.findById(item.getId())).contains(item);
+        }
+        assertThat(a.store.size() + b.store.size()).isEqualTo(created.size() + 3);
+    }
+
+    @Test
+    void keepsLocalWritesNewerThanAHandedOffCopy() {
+        Node a = network.start("a");
+        InventoryItem desk = a.store.create("Desk", 5, 120.0);
+        Node b = network.start("b");
+        Node owner = b.router.isLocal(desk.getId()) ? b : a;
+        long staleVersion = 1;
+
+        // The owner changed the item, and then an old copy arrives from a slow handoff
+        owner.store.put(new InventoryItem(desk.getId(), "Desk", 4, 120.0));
+        owner.router.receive(List.of(new HandoffItem(desk, staleVersion, "inventory-service:z")));
+        assertThat(owner.store.findById(desk.getId())).hasValueSatisfying(item -> assertThat(item.getQuantity()).isEqualTo(4));
+
+        // A delete is remembered the same way
+        owner.store.delete(desk.getId());
+        owner.router.receive(List.of(new HandoffItem(desk, staleVersion, "inventory-service:z")));
+        assertThat(owner.store.exists(desk.getId())).isFalse();
+        assertThat(owner.router.status().getStaleHandoffItems()).isEqualTo(2);
+
+        // A newer copy wins
+        long newer = (System.currentTimeMillis() + 60_000) << 16;
+        owner.router.receive(List.of(new HandoffItem(desk, newer, "inventory-service:z")));
+        assertThat(owner.store.findById(desk.getId())).contains(desk);
+    }
+
+    @Test
+    void neverReplacesALocalCopyWithAnUnversionedOne() {
+        Node a = network.start("a");
+        a.router.receive(List.of(new HandoffItem(new InventoryItem(1L, "Old laptop", 0, 1.0), 0, "")));
+
+        assertThat(a.store.findById(1)).hasValueSatisfying(item -> assertThat(item.getName()).isEqualTo("Laptop"));
+    }
+
+    @Test
+    void allocatesIdsThatNeverCollideAcrossMembershipChanges() {
+        Node a = network.start("a");
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            assertThat(ids.add(a.store.create("A" + i, 1, 1.0).getId())).isTrue();
+        }
+        Node b = network.start("b");
+        a.router.refresh();
+        for (int i = 0; i < 100; i++) {
+            InventoryItem fromA = a.store.create("A" + i, 1, 1.0);
+            InventoryItem fromB = b.store.create("B" + i, 1, 1.0);
+            assertThat(a.router.isLocal(fromA.getId())).isTrue();
+            assertThat(b.router.isLocal(fromB.getId())).isTrue();
+            assertThat(fromB.getId()).isBetween(b.router.status().getIdRangeStart(),
+                    b.router.status().getIdRangeStart() + (1L << IdRanges.RANGE_BITS) - 1);
+            assertThat(ids.add(fromA.getId())).isTrue();
+            assertThat(ids.add(fromB.getId())).isTrue();
+        }
+        assertThat(a.store.size() + b.store.size()).isEqualTo(ids.size() + 3);
+    }
+
+    @Test
+    void drainsEveryItemBeforeShutdown() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        a.router.refresh();
+        InventoryItem created = b.store.create("Desk", 5, 120.0);
+        InventoryItemPatch patch = new InventoryItemPatch();
+        patch.setQuantity(1);
+        long startupItemOwnedByB = b.store.values().stream()
+                .mapToLong(InventoryItem::getId).filter(id -> id <= 3).findFirst().orElseThrow();
+        b.store.patch(startupItemOwnedByB, patch);
+
+        b.router.drain();
+
+        assertThat(b.store.size()).isZero();
+        assertThat(a.store.findById(created.getId())).contains(created);
+        assertThat(a.store.size()).isEqualTo(4);
+        assertThat(a.store.findById(startupItemOwnedByB)).hasValueSatisfying(item -> assertThat(item.getQuantity()).isEqualTo(1));
+    }
+
+    @Test
+    void movesHistoryWithTheItem() {
+        Node a = network.start("a");
+        Node b = network.start("b");
+        a.router.refresh();
+        long id = b.store.values().stream().mapToLong(InventoryItem::getId).filter(key -> key <= 3).findFirst().orElseThrow();
+        InventoryItem item = b.store.findById(id).orElseThrow();
+        for (int quantity = 1; quantity <= 3; quantity++) {
+            b.store.put(new InventoryItem(id, item.getName(), quantity, item.getPrice()));
+        }
+
+        b.router.drain();
+
+        assertThat(b.history.getItemCount()).isZero();
+        assertThat(b.history.getByteSize()).isZero();
+        Instant now = Instant.now();
+        List<StockHistoryPoint> points = a.history.query(id, now.minusSeconds(60), now.plusSeconds(60), 1)
+                .orElseThrow().getPoints();
+        assertThat(points).singleElement().satisfies(point -> {
+            assertThat(point.getQuantity()).isEqualTo(3);
+            assertThat(point.getMinQuantity()).isEqualTo(1);
+            assertThat(point.getMaxQuantity()).isEqualTo(item.getQuantity());
+            // Receiving the copy is not a change of its own
+            assertThat(point.getChanges()).isEqualTo(3);
+        });
+    }
+
+    private record Node(String name, InventoryStore store, StockHistory history, ShardRouter router) {
+    }
+
+    private static final class Instance extends DefaultServiceInstance implements Registration {
+        Instance(String name) {
+            super("inventory-service:" + name, "inventory-service", name, 443, true);
+        }
+    }
+
+    /**
+     * Discovery and transport for the nodes of one test.
+     */
+    private static final class Network extends RestTemplate implements DiscoveryClient {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final Map<String, Node> nodes = new LinkedHashMap<>();
+        private final Map<String, Instance> instances = new LinkedHashMap<>();
+        private final AtomicInteger handoffs = new AtomicInteger();
+
+        Node start(String name) {
+            Instance instance = new Instance(name);
+            DefaultListableBeanFactory registration = new DefaultListableBeanFactory();
+            registration.registerSingleton("registration", instance);
+            InventoryStore store = new InventoryStore(
+                    new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0));
+            StockHistory history = new StockHistory(store, Duration.ofDays(7));
+            registration.registerSingleton("history", history);
+            ShardRouter router = new ShardRouter(store, this, this, registration.getBeanProvider(Registration.class),
+                    registration.getBeanProvider(StockHistory.class), "inventory-service", 128, false);
+            ReflectionTestUtils.setField(router, "contextPath", "");
+            ReflectionTestUtils.setField(router, "handoffBatchSize", 10);
+            ReflectionTestUtils.setField(router, "tombstoneTtlMillis", 3_600_000L);
+            Node node = new Node(name, store, history, router);
+            nodes.put(name, node);
+            instances.put(name, instance);
+            router.run(null);
+            router.onReady();
+            return node;
+        }
+
+        @Override
+        public String description() {
+            return "test network";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return new ArrayList<>(instances.values());
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of("inventory-service");
+        }
+
+        @Override
+        public URI postForLocation(String url, Object request, Object... uriVariables) {
+            handoffs.incrementAndGet();
+            nodes.get(URI.create(url).getHost()).router
+                    .receive(objectMapper.convertValue(request, new TypeReference<List<HandoffItem>>() {}));
+            return null;
+        }
+    }
+}
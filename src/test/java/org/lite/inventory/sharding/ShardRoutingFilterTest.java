@@ -0,0 +1,295 @@
+package org.lite.inventory.sharding;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.lite.inventory.config.TrustedPeerCertificates;
+import org.lite.inventory.history.StockHistory;
+import org.lite.inventory.service.InventoryStore;
+import org.lite.inventory.tracing.SpanFileExporter;
+import org.lite.inventory.tracing.Tracer;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRoutingFilterTest {
+
+    private static final String CONTEXT_PATH = "/r/inventory-service";
+    // Self-signed, CN=inventory-service, O=Lite and CN=gateway, O=Lite
+    private static final String PEER_CERTIFICATE = """
+            -----BEGIN CERTIFICATE-----
+            MIIBcTCCARagAwIBAgIJAI0J30yKRYm7MAoGCCqGSM49BAMDMCsxDTALBgNVBAoT
+            BExpdGUxGjAYBgNVBAMTEWludmVudG9yeS1zZXJ2aWNlMCAXDTI2MTAxOTAxNTUw
+            NFoYDzIxMjYwOTI1MDE1NTA0WjArMQ0wCwYDVQQKEwRMaXRlMRowGAYDVQQDExFp
+            bnZlbnRvcnktc2VydmljZTBZMBMGByqGSM49AgEGCCqGSM49AwEHA0IABASFWj+c
+            Loqpsnzh5debID5MFAHV5bIwPk2Erwe82G5xpf2vWv+2TFSVImQTgfYWohA5fPCY
+            HGwWZJyw/JDrFwSjITAfMB0GA1UdDgQWBBS1oG0oDMAbBEp67ZkPtOeCbzDKgjAK
+            BggqhkjOPQQDAwNJADBGAiEAozrYjgggG8NmSSnbiD9IIq1hSPb+NXJQE3lYkdnY
+            OcICIQCuPz69LD1UG7arvDDdmoYnjm0S9RF3U58t3xfDWYzsDw==
+            -----END CERTIFICATE-----
+            """;
+    private static final String GATEWAY_CERTIFICATE = """
+            -----BEGIN CERTIFICATE-----
+            MIIBWzCCAQKgAwIBAgIJAN+nVxqEg7OiMAoGCCqGSM49BAMDMCExDTALBgNVBAoT
+            BExpdGUxEDAOBgNVBAMTB2dhdGV3YXkwIBcNMjYxMDE5MDE1NTA3WhgPMjEyNjA5
+            MjUwMTU1MDdaMCExDTALBgNVBAoTBExpdGUxEDAOBgNVBAMTB2dhdGV3YXkwWTAT
+            BgcqhkjOPQIBBggqhkjOPQMBBwNCAASI5XqMoEb99FJOM6emGt7yeEln3szx8QQo
+            X3BdjjLvDG25SPl/3uLKN01pkkWDkpCkcTE0e8Sqr4T2LDTAYy4XoyEwHzAdBgNV
+            HQ4EFgQUrW3Z3EmugNz72D1gHeYlpTTEdJ8wCgYIKoZIzj0EAwMDRwAwRAIgM8iL
+            X7Uw9U4+qKj60F5qSoYfks+WRd8+k5XzpHiq7DgCIA+Bozr3TBlvtt1QTQsTrNgb
+            Zam8EGr1YxhlQYtezVFR
+            -----END CERTIFICATE-----
+            """;
+
+    private ShardRouter router;
+    private Owner owner;
+    private ShardRoutingFilter filter;
+    private long remoteId;
+    private long localId;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory registration = new DefaultListableBeanFactory();
+        registration.registerSingleton("registration", new Instance("a"));
+        owner = new Owner();
+        router = new ShardRouter(
+                new InventoryStore(new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 0)),
+                new Members(), owner, registration.getBeanProvider(Registration.class),
+                registration.getBeanProvider(StockHistory.class), "inventory-service", 128, false);
+        ReflectionTestUtils.setField(router, "contextPath", CONTEXT_PATH);
+        router.run(null);
+        filter = new ShardRoutingFilter(router, owner,
+                new TrustedPeerCertificates(List.of("inventory-service"), "INTERNAL_SERVICE"));
+        ReflectionTestUtils.setField(filter, "maxRequestBytes", 16);
+        remoteId = 1;
+        while (router.isLocal(remoteId)) {
+            remoteId++;
+        }
+        localId = 1;
+        while (!router.isLocal(localId)) {
+            localId++;
+        }
+    }
+
+    @Test
+    void forwardsItemSubpathsWithTheirQuery() throws Exception {
+        MockHttpServletRequest request = request("GET", "/api/inventory/" + remoteId + "/history");
+        request.setQueryString("step=PT1H");
+
+        MockFilterChain chain = forward(request);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(owner.url).isEqualTo("https://b:443" + CONTEXT_PATH + "/api/inventory/" + remoteId + "/history?step=PT1H");
+        assertThat(owner.method).isEqualTo(HttpMethod.GET);
+    }
+
+    @Test
+    void forwardsOptions() throws Exception {
+        forward(request("OPTIONS", "/api/inventory/" + remoteId));
+
+        assertThat(owner.method).isEqualTo(HttpMethod.OPTIONS);
+    }
+
+    @Test
+    void passesEndToEndRequestHeadersOnly() throws Exception {
+        MockHttpServletRequest request = request("PATCH", "/api/inventory/" + remoteId);
+        request.addHeader("If-Match", "\"3\"");
+        request.addHeader("Idempotency-Key", "k1");
+        request.addHeader("Authorization", "Bearer token");
+        request.addHeader("Connection", "X-Hop");
+        request.addHeader("X-Hop", "1");
+        request.setContent("{\"quantity\":1}".getBytes(StandardCharsets.UTF_8));
+
+        forward(request);
+
+        assertThat(owner.headers.getFirst("If-Match")).isEqualTo("\"3\"");
+        assertThat(owner.headers.getFirst("Idempotency-Key")).isEqualTo("k1");
+        assertThat(owner.headers.getFirst(ShardRoutingFilter.FORWARDED_HEADER)).isEqualTo("inventory-service:a");
+        assertThat(owner.headers).doesNotContainKeys("Authorization", "Connection", "X-Hop");
+        assertThat(owner.body).isEqualTo("{\"quantity\":1}");
+    }
+
+    @Test
+    void relaysEndToEndResponseHeaders() throws Exception {
+        owner.responseHeaders.add("ETag", "\"4\"");
+        owner.responseHeaders.add("X-Item-Version", "4");
+        owner.responseHeaders.add("Idempotent-Replayed", "true");
+        owner.responseHeaders.add("Vary", "Accept");
+        owner.responseHeaders.add("Vary", "Authorization");
+        owner.responseHeaders.add("Transfer-Encoding", "chunked");
+        owner.responseHeaders.add("Connection", "close");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/api/inventory/" + remoteId), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"4\"");
+        assertThat(response.getHeader("X-Item-Version")).isEqualTo("4");
+        assertThat(response.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(response.getHeaders("Vary")).containsExactly("Accept", "Authorization");
+        assertThat(response.getHeaderNames()).doesNotContain("Transfer-Encoding", "Connection");
+        assertThat(response.getContentAsString()).isEqualTo("{\"id\":" + remoteId + "}");
+    }
+
+    @Test
+    void relaysErrorResponsesWithTheirHeaders() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Retry-After", "2");
+        owner.error = HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers,
+                "{\"code\":\"RATE_LIMITED\"}".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("DELETE", "/api/inventory/" + remoteId), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(response.getContentAsString()).isEqualTo("{\"code\":\"RATE_LIMITED\"}");
+    }
+
+    @Test
+    void servesEverythingElseLocally() throws Exception {
+        MockHttpServletRequest alreadyForwarded = request("GET", "/api/inventory/" + remoteId);
+        alreadyForwarded.addHeader(ShardRoutingFilter.FORWARDED_HEADER, "inventory-service:b");
+        alreadyForwarded.setAttribute("jakarta.servlet.request.X509Certificate", certificates(PEER_CERTIFICATE));
+
+        for (MockHttpServletRequest request : List.of(
+                request("GET", "/api/inventory/" + localId + "/history"),
+                request("GET", "/api/inventory/search"),
+                request("GET", "/api/inventory/" + remoteId + "x"),
+                request("POST", "/api/inventory/" + remoteId),
+                alreadyForwarded)) {
+            MockFilterChain chain = forward(request);
+            assertThat(chain.getRequest()).isSameAs(request);
+        }
+        assertThat(owner.url).isNull();
+    }
+
+    @Test
+    void ignoresTheForwardedMarkFromOtherCallers() throws Exception {
+        for (String certificate : new String[] {null, GATEWAY_CERTIFICATE}) {
+            MockHttpServletRequest request = request("DELETE", "/api/inventory/" + remoteId);
+            request.addHeader(ShardRoutingFilter.FORWARDED_HEADER, "inventory-service:b");
+            if (certificate != null) {
+                request.setAttribute("jakarta.servlet.request.X509Certificate", certificates(certificate));
+            }
+            owner.url = null;
+
+            MockFilterChain chain = forward(request);
+
+            assertThat(chain.getRequest()).isNull();
+            assertThat(owner.url).isEqualTo("https://b:443" + CONTEXT_PATH + "/api/inventory/" + remoteId);
+            assertThat(owner.headers.getFirst(ShardRoutingFilter.FORWARDED_HEADER)).isEqualTo("inventory-service:a");
+        }
+    }
+
+    @Test
+    void refusesBodiesOverTheLimitWithoutForwarding() throws Exception {
+        MockHttpServletRequest declared = request("PUT", "/api/inventory/" + remoteId);
+        declared.setContent(new byte[17]);
+        // Chunked: no Content-Length, so the body is read up to the limit
+        MockHttpServletRequest chunked = new MockHttpServletRequest("PUT", CONTEXT_PATH + "/api/inventory/" + remoteId) {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContextPath(CONTEXT_PATH);
+        chunked.setContent(new byte[1 << 20]);
+
+        for (MockHttpServletRequest request : List.of(declared, chunked)) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+
+            assertThat(response.getStatus()).isEqualTo(413);
+            assertThat(response.getContentAsString()).contains("PAYLOAD_TOO_LARGE");
+        }
+        assertThat(owner.url).isNull();
+    }
+
+    private static X509Certificate[] certificates(String pem) throws CertificateException {
+        return new X509Certificate[] {(X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(pem.getBytes(StandardCharsets.US_ASCII)))};
+    }
+
+    private MockFilterChain forward(MockHttpServletRequest request) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return chain;
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, CONTEXT_PATH + path);
+        request.setContextPath(CONTEXT_PATH);
+        return request;
+    }
+
+    private static final class Instance extends DefaultServiceInstance implements Registration {
+        Instance(String name) {
+            super("inventory-service:" + name, "inventory-service", name, 443, true);
+        }
+    }
+
+    private static final class Members implements DiscoveryClient {
+        @Override
+        public String description() {
+            return "two members";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            return List.of(new Instance("a"), new Instance("b"));
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of("inventory-service");
+        }
+    }
+
+    /**
+     * Stands in for the owning instance: records the forwarded request and answers with the configured headers,
+     * or fails with the configured error.
+     */
+    private final class Owner extends RestTemplate {
+        private final HttpHeaders responseHeaders = new HttpHeaders();
+        private HttpClientErrorException error;
+        private String url;
+        private HttpMethod method;
+        private HttpHeaders headers;
+        private Object body;
+
+        @Override
+        public <T> ResponseEntity<T> exchange(String url, HttpMethod method, HttpEntity<?> requestEntity,
+                                              Class<T> responseType, Object... uriVariables) {
+            this.url = url;
+            this.method = method;
+            this.headers = requestEntity.getHeaders();
+            this.body = requestEntity.getBody();
+            if (error != null) {
+                throw error;
+            }
+            return new ResponseEntity<>(responseType.cast("{\"id\":" + remoteId + "}"), responseHeaders, HttpStatus.OK);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.lite.inventory.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpanFileExporterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesOneJsonObjectPerSpan() throws Exception {
+        Path file = directory.resolve("spans").resolve("traces.ndjson");
+        SpanFileExporter exporter = new SpanFileExporter(file.toString(), 16, Long.MAX_VALUE, "inventory-service",
+                objectMapper);
+        TraceContext server = new TraceContext(0x4bf92f3577b34da6L, 0xa3ce929d0e0e4736L, 0x00f067aa0ba902b7L, true);
+        Span root = span(server, 0, "GET /api/inventory/{id}", Span.Kind.SERVER, 1_000_000, 3_500_000)
+                .setAttribute("http.route", "/api/inventory/{id}")
+                .setAttribute("http.response.status_code", 200)
+                .setAttribute("cache.hit", true);
+        Span child = span(new TraceContext(server.traceIdHigh(), server.traceIdLow(), 0xbL, true), server.spanId(),
+                "store.replace", Span.Kind.INTERNAL, 2_000_000, 2_000_500)
+                .recordError(new IllegalStateException("Version conflict"));
+
+        exporter.export(child);
+        exporter.export(root);
+        exporter.stop();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertThat(first.get("traceId").asText()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(first.get("spanId").asText()).isEqualTo("000000000000000b");
+        assertThat(first.get("parentSpanId").asText()).isEqualTo("00f067aa0ba902b7");
+        assertThat(first.get("name").asText()).isEqualTo("store.replace");
+        assertThat(first.get("kind").asText()).isEqualTo("INTERNAL");
+        assertThat(first.get("durationMicros").asLong()).isZero();
+        assertThat(first.has("attributes")).isFalse();
+        assertThat(first.get("status").asText()).isEqualTo("ERROR");
+        assertThat(first.get("statusMessage").asText()).isEqualTo("IllegalStateException: Version conflict");
+
+        JsonNode second = objectMapper.readTree(lines.get(1));
+        assertThat(second.has("parentSpanId")).isFalse();
+        assertThat(second.get("name").asText()).isEqualTo("GET /api/inventory/{id}");
+        assertThat(second.get("kind").asText()).isEqualTo("SERVER");
+        assertThat(second.get("startTimeUnixNano").asLong()).isEqualTo(1_000_000);
+        assertThat(second.get("endTimeUnixNano").asLong()).isEqualTo(3_500_000);
+        assertThat(second.get("durationMicros").asLong()).isEqualTo(2_500);
+        assertThat(second.get("service").asText()).isEqualTo("inventory-service");
+        assertThat(second.get("attributes").get("http.route").asText()).isEqualTo("/api/inventory/{id}");
+        assertThat(second.get("attributes").get("http.response.status_code").isNumber()).isTrue();
+        assertThat(second.get("attributes").get("cache.hit").isBoolean()).isTrue();
+        assertThat(second.get("status").asText()).isEqualTo("OK");
+        assertThat(second.has("statusMessage")).isFalse();
+        assertThat(exporter.getExportedCount()).isEqualTo(2);
+        assertThat(exporter.getDroppedCount()).isZero();
+    }
+
+    @Test
+    void rotatesTheFileOnceItExceedsTheLimit() throws Exception {
+        Path file = directory.resolve("traces.ndjson");
+        Path rotated = directory.resolve("traces.ndjson.1");
+        // A single span exceeds the limit, so every batch is rotated
+        SpanFileExporter exporter = new SpanFileExporter(file.toString(), 16, 1, "inventory-service", objectMapper);
+
+        exportAndWait(exporter, "first", 1);
+        assertThat(file).doesNotExist();
+        assertThat(names(rotated)).containsExactly("first");
+
+        exportAndWait(exporter, "second", 2);
+        exporter.stop();
+
+        assertThat(file).doesNotExist();
+        assertThat(names(rotated)).containsExactly("second");
+    }
+
+    private void exportAndWait(SpanFileExporter exporter, String name, long exported) throws InterruptedException {
+        exporter.export(span(new TraceContext(1, 2, 3, true), 0, name, Span.Kind.INTERNAL, 0, 1_000));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (exporter.getExportedCount() < exported && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(exporter.getExportedCount()).isEqualTo(exported);
+    }
+
+    private List<String> names(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            names.add(objectMapper.readTree(line).get("name").asText());
+        }
+        return names;
+    }
+
+    private static Span span(TraceContext context, long parentSpanId, String name, Span.Kind kind, long start, long end) {
+        Span span = new Span(null, context, parentSpanId, name, kind, null, start);
+        span.setEndEpochNanos(end);
+        return span;
+    }
+}
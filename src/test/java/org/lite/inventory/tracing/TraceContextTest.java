@@ -0,0 +1,70 @@
+package org.lite.inventory.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceContextTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String SPAN_ID = "00f067aa0ba902b7";
+
+    @Test
+    void parsesAndWritesTheSameHeader() {
+        String sampled = "00-" + TRACE_ID + "-" + SPAN_ID + "-01";
+        String unsampled = "00-" + TRACE_ID + "-" + SPAN_ID + "-00";
+
+        TraceContext context = TraceContext.parse(sampled);
+
+        assertThat(context).isNotNull();
+        assertThat(context.traceIdHigh()).isEqualTo(0x4bf92f3577b34da6L);
+        assertThat(context.traceIdLow()).isEqualTo(0xa3ce929d0e0e4736L);
+        assertThat(context.spanId()).isEqualTo(0x00f067aa0ba902b7L);
+        assertThat(context.sampled()).isTrue();
+        assertThat(context.traceId()).isEqualTo(TRACE_ID);
+        assertThat(context.spanIdHex()).isEqualTo(SPAN_ID);
+        assertThat(context.toTraceparent()).isEqualTo(sampled);
+        assertThat(TraceContext.parse(unsampled).sampled()).isFalse();
+        assertThat(TraceContext.parse(unsampled).toTraceparent()).isEqualTo(unsampled);
+    }
+
+    @Test
+    void keepsTheSampledFlagAmongOtherFlags() {
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + SPAN_ID + "-03").sampled()).isTrue();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + SPAN_ID + "-02").sampled()).isFalse();
+    }
+
+    @Test
+    void writesIdsWithTheirLeadingZeros() {
+        TraceContext context = new TraceContext(0, 1, 0xffL, false);
+
+        assertThat(context.toTraceparent()).isEqualTo("00-00000000000000000000000000000001-00000000000000ff-00");
+        assertThat(TraceContext.parse(context.toTraceparent())).isEqualTo(context);
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        assertThat(TraceContext.parse(null)).isNull();
+        assertThat(TraceContext.parse("")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + SPAN_ID)).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + SPAN_ID + "-01 ")).isNull();
+        assertThat(TraceContext.parse("00_" + TRACE_ID + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "_" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID.toUpperCase() + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID.replace('a', 'g') + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + SPAN_ID + "-0x")).isNull();
+    }
+
+    @Test
+    void rejectsAllZeroIds() {
+        assertThat(TraceContext.parse("00-" + "0".repeat(32) + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("00-" + TRACE_ID + "-" + "0".repeat(16) + "-01")).isNull();
+    }
+
+    @Test
+    void rejectsVersionsOtherThanZero() {
+        assertThat(TraceContext.parse("01-" + TRACE_ID + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("ff-" + TRACE_ID + "-" + SPAN_ID + "-01")).isNull();
+        assertThat(TraceContext.parse("01-" + TRACE_ID + "-" + SPAN_ID + "-01-extra")).isNull();
+    }
+}
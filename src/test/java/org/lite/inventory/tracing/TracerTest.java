@@ -0,0 +1,195 @@
+package org.lite.inventory.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TracerTest {
+
+    private static final String CALLER_SAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final String CALLER_UNSAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00";
+
+    @TempDir
+    Path directory;
+
+    private RecordingExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new RecordingExporter(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exporter.stop();
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes only need to be active while their block runs
+    void recordsNothingWhenDisabled() {
+        Tracer tracer = new Tracer(new DefaultListableBeanFactory().getBeanProvider(SpanFileExporter.class), 1);
+
+        try (Span server = tracer.startServerSpan("GET", CALLER_SAMPLED);
+             Tracer.Scope scope = tracer.activate(TraceContext.parse(CALLER_SAMPLED))) {
+            assertThat(tracer.isEnabled()).isFalse();
+            assertThat(server.isRecording()).isFalse();
+            assertThat(tracer.startSpan("child").isRecording()).isFalse();
+            assertThat(tracer.currentContext()).isNull();
+        }
+    }
+
+    @Test
+    void continuesTheCallersTraceAndSamplingDecision() {
+        Tracer tracer = tracer(0);
+        TraceContext caller = TraceContext.parse(CALLER_SAMPLED);
+
+        try (Span server = tracer.startServerSpan("GET", CALLER_SAMPLED)) {
+            assertThat(server.isRecording()).isTrue();
+            assertThat(server.parentSpanId()).isEqualTo(caller.spanId());
+            assertThat(server.context().traceId()).isEqualTo(caller.traceId());
+            assertThat(server.context().spanId()).isNotEqualTo(caller.spanId());
+            assertThat(tracer.currentContext()).isEqualTo(server.context());
+        }
+        assertThat(exporter.spans).hasSize(1);
+    }
+
+    @Test
+    void keepsAnUnsampledCallerUnsampledButPassesTheDecisionOn() {
+        Tracer tracer = tracer(1);
+
+        try (Span server = tracer.startServerSpan("GET", CALLER_UNSAMPLED)) {
+            assertThat(server.isRecording()).isFalse();
+            assertThat(tracer.isSampled()).isFalse();
+            // Still current, so outgoing calls tell the next service not to sample either
+            assertThat(tracer.currentContext()).isNotNull();
+            assertThat(tracer.currentContext().traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+            assertThat(tracer.currentContext().sampled()).isFalse();
+
+            try (Span child = tracer.startSpan("child")) {
+                assertThat(child.isRecording()).isFalse();
+                assertThat(tracer.currentContext()).isEqualTo(server.context());
+            }
+        }
+        assertThat(tracer.currentContext()).isNull();
+        assertThat(exporter.spans).isEmpty();
+    }
+
+    @Test
+    void samplesNewTracesByTheSampleRate() {
+        Tracer never = tracer(0);
+        Tracer always = tracer(1);
+
+        for (int i = 0; i < 100; i++) {
+            try (Span unsampled = never.startServerSpan("GET", null)) {
+                assertThat(unsampled.isRecording()).isFalse();
+            }
+            try (Span sampled = always.startServerSpan("GET", "not a traceparent")) {
+                assertThat(sampled.isRecording()).isTrue();
+                assertThat(sampled.parentSpanId()).isZero();
+            }
+        }
+        assertThat(exporter.spans).hasSize(100);
+    }
+
+    @Test
+    void startsChildrenOfTheCurrentSpanAndRestoresItOnClose() {
+        Tracer tracer = tracer(1);
+
+        assertThat(tracer.startSpan("outside a trace").isRecording()).isFalse();
+        try (Span server = tracer.startServerSpan("GET", null)) {
+            try (Span child = tracer.startSpan("child")) {
+                try (Span grandchild = tracer.startSpan("grandchild", Span.Kind.CLIENT)) {
+                    assertThat(grandchild.parentSpanId()).isEqualTo(child.context().spanId());
+                    assertThat(grandchild.context().traceId()).isEqualTo(server.context().traceId());
+                    assertThat(tracer.currentContext()).isEqualTo(grandchild.context());
+                }
+                assertThat(child.parentSpanId()).isEqualTo(server.context().spanId());
+                assertThat(tracer.currentContext()).isEqualTo(child.context());
+                // Closing twice neither exports again nor moves the current context
+                Span sibling = tracer.startSpan("sibling");
+                sibling.close();
+                sibling.close();
+                assertThat(tracer.currentContext()).isEqualTo(child.context());
+            }
+            assertThat(tracer.currentContext()).isEqualTo(server.context());
+        }
+        assertThat(tracer.currentContext()).isNull();
+        assertThat(exporter.spans).extracting(Span::name).containsExactly("grandchild", "sibling", "child", "GET");
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes only need to be active while their block runs
+    void restoresThePreviousContextWhenAScopeCloses() {
+        Tracer tracer = tracer(1);
+        TraceContext other = TraceContext.parse(CALLER_SAMPLED);
+
+        try (Span server = tracer.startServerSpan("GET", null)) {
+            try (Tracer.Scope scope = tracer.activate(other)) {
+                assertThat(tracer.currentContext()).isEqualTo(other);
+            }
+            assertThat(tracer.currentContext()).isEqualTo(server.context());
+            try (Tracer.Scope scope = tracer.activate(null)) {
+                assertThat(tracer.currentContext()).isEqualTo(server.context());
+            }
+        }
+        assertThat(tracer.currentContext()).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes only need to be active while their block runs
+    void continuesATraceOnAVirtualThread() throws InterruptedException {
+        Tracer tracer = tracer(1);
+        AtomicReference<Span> child = new AtomicReference<>();
+        AtomicReference<TraceContext> afterScope = new AtomicReference<>();
+
+        try (Span server = tracer.startServerSpan("GET", null)) {
+            TraceContext context = tracer.currentContext();
+            Thread thread = Thread.ofVirtual().start(() -> {
+                try (Tracer.Scope scope = tracer.activate(context)) {
+                    try (Span span = tracer.startSpan("async")) {
+                        child.set(span);
+                    }
+                }
+                afterScope.set(tracer.currentContext());
+            });
+            thread.join();
+
+            assertThat(child.get().parentSpanId()).isEqualTo(server.context().spanId());
+            assertThat(child.get().context().traceId()).isEqualTo(server.context().traceId());
+            assertThat(afterScope.get()).isNull();
+            assertThat(tracer.currentContext()).isEqualTo(server.context());
+        }
+    }
+
+    private Tracer tracer(double sampleRate) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("spanFileExporter", exporter);
+        return new Tracer(beanFactory.getBeanProvider(SpanFileExporter.class), sampleRate);
+    }
+
+    // Keeps exported spans in memory instead of writing them
+    private static final class RecordingExporter extends SpanFileExporter {
+
+        private final List<Span> spans = new CopyOnWriteArrayList<>();
+
+        RecordingExporter(Path directory) {
+            super(directory.resolve("traces.ndjson").toString(), 16, Long.MAX_VALUE, "inventory-service",
+                    new ObjectMapper());
+        }
+
+        @Override
+        void export(Span span) {
+            spans.add(span);
+        }
+    }
+}
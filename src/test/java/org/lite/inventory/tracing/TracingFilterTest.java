@@ -0,0 +1,142 @@
+package org.lite.inventory.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracingFilterTest {
+
+    private static final String CALLER = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @TempDir
+    Path directory;
+
+    private RecordingExporter exporter;
+    private Tracer tracer;
+    private TracingFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        exporter = new RecordingExporter(directory);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("spanFileExporter", exporter);
+        tracer = new Tracer(beanFactory.getBeanProvider(SpanFileExporter.class), 0);
+        filter = new TracingFilter(tracer);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        exporter.stop();
+    }
+
+    @Test
+    void recordsTheServerSpanUnderTheCallersTrace() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/inventory/7");
+        request.addHeader(TraceContext.TRACEPARENT_HEADER, CALLER);
+        TraceContext[] during = new TraceContext[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                during[0] = tracer.currentContext();
+                request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/inventory/{id}");
+                ((HttpServletResponse) response).setStatus(200);
+            }
+        });
+
+        assertThat(exporter.spans).hasSize(1);
+        Span span = exporter.spans.get(0);
+        assertThat(span.context()).isEqualTo(during[0]);
+        assertThat(span.context().traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+        assertThat(span.parentSpanId()).isEqualTo(0x00f067aa0ba902b7L);
+        assertThat(span.kind()).isEqualTo(Span.Kind.SERVER);
+        assertThat(span.name()).isEqualTo("GET /api/inventory/{id}");
+        assertThat(attributes(span)).containsExactly("http.request.method=GET", "url.path=/api/inventory/7",
+                "http.route=/api/inventory/{id}", "http.response.status_code=200");
+        assertThat(span.errorMessage()).isNull();
+        assertThat(tracer.currentContext()).isNull();
+    }
+
+    @Test
+    void marksServerErrorsAndFailures() throws Exception {
+        MockHttpServletRequest failing = new MockHttpServletRequest("POST", "/api/inventory");
+        failing.addHeader(TraceContext.TRACEPARENT_HEADER, CALLER);
+        MockHttpServletRequest unavailable = new MockHttpServletRequest("POST", "/api/inventory");
+        unavailable.addHeader(TraceContext.TRACEPARENT_HEADER, CALLER);
+
+        assertThatThrownBy(() -> filter.doFilter(failing, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                throw new IllegalStateException("Store closed");
+            }
+        })).isInstanceOf(IllegalStateException.class);
+        filter.doFilter(unavailable, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                ((HttpServletResponse) response).setStatus(503);
+            }
+        });
+
+        assertThat(exporter.spans).extracting(Span::name).containsExactly("POST", "POST");
+        assertThat(exporter.spans).extracting(Span::errorMessage)
+                .containsExactly("IllegalStateException: Store closed", "HTTP 503");
+        assertThat(tracer.currentContext()).isNull();
+    }
+
+    @Test
+    void leavesHealthChecksUntraced() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/health");
+        request.addHeader(TraceContext.TRACEPARENT_HEADER, CALLER);
+        TraceContext[] during = new TraceContext[1];
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                during[0] = tracer.currentContext();
+            }
+        });
+
+        assertThat(during[0]).isNull();
+        assertThat(exporter.spans).isEmpty();
+    }
+
+    private static List<String> attributes(Span span) {
+        return IntStream.range(0, span.attributeCount())
+                .mapToObj(i -> span.attributeKey(i) + "=" + span.attributeValue(i))
+                .toList();
+    }
+
+    // Keeps exported spans in memory instead of writing them
+    private static final class RecordingExporter extends SpanFileExporter {
+
+        private final List<Span> spans = new CopyOnWriteArrayList<>();
+
+        RecordingExporter(Path directory) {
+            super(directory.resolve("traces.ndjson").toString(), 16, Long.MAX_VALUE, "inventory-service",
+                    new ObjectMapper());
+        }
+
+        @Override
+        void export(Span span) {
+            spans.add(span);
+        }
+    }
+}